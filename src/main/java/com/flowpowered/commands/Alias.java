@@ -39,10 +39,23 @@ public class Alias {
     }
 
     protected void process(CommandSender sender, CommandArguments args, ProcessingMode mode) throws CommandException {
+        applyOverrides(args);
+        parent.processChild(sender, args, mode);
+    }
+
+    /**
+     * Overrides the next subcommand names in {@code args} with the path of this alias.
+     *
+     * @param args the arguments to override
+     */
+    protected void applyOverrides(CommandArguments args) {
         for (int i = 0; i < path.size(); ++i) {
-            args.setArgOverride(CommandArguments.SUBCOMMAND_ARGNAME + (args.getDepth() + i), path.get(i));
+            args.setArgOverride(ArgumentKeys.subCommand(args.getDepth() + i), path.get(i));
         }
-        parent.processChild(sender, args, mode);
+    }
+
+    public Command getParent() {
+        return parent;
     }
 
     public List<String> getPath() {
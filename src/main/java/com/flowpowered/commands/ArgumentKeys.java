@@ -0,0 +1,118 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.flowpowered.commands.flags.CommandFlags;
+
+/**
+ * Precomputed names for the arguments that processing names by position, such as subcommands and flags.
+ * <p>
+ * Naming those arguments used to concatenate a new string for every argument of every command line. The names returned here are created once and then shared,
+ * so routine dispatch doesn't create throwaway strings, and looking them up in {@link CommandArguments} hits the cached hash code and the identity check.
+ * Names are cached for the first {@value #MAX_CACHED_INDEX} positions of at most {@value #MAX_CACHED_BASES} bases; anything beyond that is concatenated as before.
+ */
+public final class ArgumentKeys {
+    public static final int MAX_CACHED_INDEX = 64;
+    public static final int MAX_CACHED_BASES = 4096;
+    private static final String[] SUBCOMMANDS = new String[MAX_CACHED_INDEX];
+    private static final ConcurrentMap<String, String[]> FLAGS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, String[]> INDEXED = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < MAX_CACHED_INDEX; ++i) {
+            SUBCOMMANDS[i] = CommandArguments.SUBCOMMAND_ARGNAME + i;
+        }
+    }
+
+    private ArgumentKeys() {
+    }
+
+    /**
+     * @param depth the depth of the subcommand
+     * @return {@code CommandArguments.SUBCOMMAND_ARGNAME + depth}
+     */
+    public static String subCommand(int depth) {
+        if (depth >= 0 && depth < MAX_CACHED_INDEX) {
+            return SUBCOMMANDS[depth];
+        }
+        return CommandArguments.SUBCOMMAND_ARGNAME + depth;
+    }
+
+    /**
+     * @param name the name of the flags argument
+     * @param index the position of the flag among the flags
+     * @return {@code CommandFlags.FLAG_ARGNAME + name + ":" + index}
+     */
+    public static String flag(String name, int index) {
+        String key = lookup(FLAGS, name, index);
+        if (key == null) {
+            key = CommandFlags.FLAG_ARGNAME + name + ":" + index;
+            store(FLAGS, name, index, key);
+        }
+        return key;
+    }
+
+    /**
+     * @param base the name of the argument the indexed one belongs to, such as the name of a flag returned by {@link #flag(String, int)}
+     * @param index the position of the argument
+     * @return {@code base + ":" + index}
+     */
+    public static String indexed(String base, int index) {
+        String key = lookup(INDEXED, base, index);
+        if (key == null) {
+            key = base + ":" + index;
+            store(INDEXED, base, index, key);
+        }
+        return key;
+    }
+
+    private static String lookup(ConcurrentMap<String, String[]> cache, String base, int index) {
+        if (index < 0 || index >= MAX_CACHED_INDEX) {
+            return null;
+        }
+        String[] keys = cache.get(base);
+        if (keys == null || index >= keys.length) {
+            return null;
+        }
+        return keys[index];
+    }
+
+    private static void store(ConcurrentMap<String, String[]> cache, String base, int index, String key) {
+        if (index < 0 || index >= MAX_CACHED_INDEX) {
+            return;
+        }
+        String[] keys = cache.get(base);
+        if (keys == null && cache.size() >= MAX_CACHED_BASES) {
+            return; // Don't let arbitrary names fill the memory
+        }
+        // Arrays are never modified once published; a lost race only means the name is created again later
+        String[] updated = keys == null ? new String[Math.max(index + 1, 4)] : Arrays.copyOf(keys, Math.max(keys.length, index + 1));
+        updated[index] = key;
+        cache.put(base, updated);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.concurrent.Executor;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A {@link CommandExecutor} which can run its command without blocking the thread that dispatched it.
+ * <p>
+ * {@link CommandManager#executeCommandAsync(CommandSender, CommandArguments)} calls {@link #executeAsync} instead of {@link #execute}.
+ * Synchronous execution, such as {@link CommandManager#executeCommand(CommandSender, CommandArguments)}, still calls {@link #execute}.
+ */
+public interface AsyncCommandExecutor extends CommandExecutor {
+    /**
+     * @param command the command being executed
+     * @param sender
+     * @param args
+     * @param executor the executor the command is being dispatched on, which may be used to run the work of the command
+     * @return a future which completes with {@code true} if the command execution is done, {@code false} if child commands can be called, or fails with a {@link CommandException}
+     */
+    ListenableFuture<Boolean> executeAsync(Command command, CommandSender sender, CommandArguments args, Executor executor);
+}
@@ -32,21 +32,28 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
 import com.flowpowered.math.vector.Vector2i;
 
 import com.flowpowered.commons.Named;
 
 import com.flowpowered.commands.exception.InsufficientPermissionsException;
-import com.flowpowered.commands.exception.UnknownSubcommandException;
 import com.flowpowered.commands.filter.CommandFilter;
+import com.flowpowered.commands.filter.FilterRegistry;
 
 public class Command implements Named {
     private final String name;
@@ -54,9 +61,18 @@ public class Command implements Named {
     protected final ReadWriteLock childLock = new ReentrantReadWriteLock();
     protected final ReadWriteLock aliasLock = new ReentrantReadWriteLock();
     private final CommandManager manager;
-    private final Map<String, Command> children = new HashMap<>();
-    private final Map<String, Alias> aliases = new HashMap<>();
+    // Children and aliases are published as immutable snapshots, so lookups never lock. Writers copy the map while holding the respective write lock.
+    private volatile Map<String, Command> children = Collections.emptyMap();
+    private volatile Map<String, Alias> aliases = Collections.emptyMap();
+    // Compiled from the two snapshots above after every change, so dispatching to the next level takes one lookup that doesn't need to normalize the name.
+    private volatile DispatchTable dispatch = DispatchTable.EMPTY;
+    private final Object dispatchLock = new Object();
     private final SortedSet<CommandFilter> filters = new ConcurrentSkipListSet<>();
+    // Cleared once it has run, so processing an initialized command costs a single volatile read.
+    private volatile CommandInitializer initializer;
+    private final Object initializerLock = new Object();
+    // The thread running the initializer, whose changes to this command don't invalidate completions: the command couldn't be completed before they were made.
+    private Thread initializingThread;
     private CommandExecutor executor;
     private String permission;
     private String help, usage, desc;
@@ -69,6 +85,7 @@ public class Command implements Named {
 
     /**
      * Processes this can for the specific {@link ProcessingMode}. This first applies filters, calls {@code ProcessingMode.step}, then processes children and aliases in the same way.
+     * The descent through the children is done in a single loop, so deep command trees don't cost more than a lookup per level.
      *
      * @param sender the sender of the command
      * @param args the arguments passed
@@ -76,44 +93,168 @@ public class Command implements Named {
      * @throws CommandException
      */
     protected void process(CommandSender sender, CommandArguments args, ProcessingMode mode) throws CommandException {
-        if (!hasPermission(sender)) {
-            throw new InsufficientPermissionsException("Not enough permissions to execute this command.", this.permission);
+        tryProcess(sender, args, mode).rethrow();
+    }
+
+    /**
+     * Non-throwing version of {@link #process(CommandSender, CommandArguments, ProcessingMode)}.
+     * Unknown subcommands, missing permissions and missing subcommand arguments are reported in the result without creating an exception.
+     *
+     * @param sender the sender of the command
+     * @param args the arguments passed
+     * @param mode the mode in which to process
+     * @return the result of processing
+     */
+    protected CommandResult tryProcess(CommandSender sender, CommandArguments args, ProcessingMode mode) {
+        Command command = this;
+        // the shared filters validated so far on this path, allocated only once one is found
+        List<CommandFilter> validated = null;
+        try {
+            while (true) {
+                if (!command.hasPermission(sender)) {
+                    return CommandResult.insufficientPermissions(command);
+                }
+                validated = command.applyFilters(sender, args, validated);
+                if (mode.step(command, sender, args)) {
+                    return CommandResult.success();
+                }
+                Object next = command.descend(sender, args, mode);
+                if (next instanceof CommandResult) {
+                    return (CommandResult) next;
+                }
+                command = (Command) next;
+            }
+        } catch (CommandException e) {
+            return CommandResult.failure(command, e);
         }
+    }
+
+    protected void processChild(CommandSender sender, CommandArguments args, ProcessingMode mode) throws CommandException {
+        Object next = findChild(args, true);
+        if (next instanceof CommandResult) {
+            ((CommandResult) next).rethrow();
+        } else if (next instanceof Alias) {
+            ((Alias) next).process(sender, args, mode);
+        } else {
+            ((Command) next).process(sender, args, mode);
+        }
+    }
+
+    /**
+     * Finds the child to process after this command in the loop of {@link #tryProcess(CommandSender, CommandArguments, ProcessingMode) tryProcess}.
+     * <p>
+     * The loop only stands in for the recursion through {@link #process(CommandSender, CommandArguments, ProcessingMode) process},
+     * {@link #processChild(CommandSender, CommandArguments, ProcessingMode) processChild} and {@link Alias#process(CommandSender, CommandArguments, ProcessingMode)
+     * Alias.process} for plain commands and aliases. Subclasses may override these hooks, so the processing is handed to them instead.
+     *
+     * @return the child to process next, or the result if there is none or the processing was handed to a hook
+     * @throws CommandException if a hook fails
+     */
+    private Object descend(CommandSender sender, CommandArguments args, ProcessingMode mode) throws CommandException {
+        if (getClass() != Command.class) {
+            processChild(sender, args, mode);
+            return CommandResult.success();
+        }
+        Object next = findChild(args, true);
+        if (next instanceof Alias) {
+            ((Alias) next).process(sender, args, mode);
+            return CommandResult.success();
+        }
+        if (next instanceof Command && next.getClass() != Command.class) {
+            ((Command) next).process(sender, args, mode);
+            return CommandResult.success();
+        }
+        return next;
+    }
 
+    /**
+     * Validates the filters of this command, skipping the {@link FilterRegistry shared} ones that were already validated on the path to it.
+     *
+     * @param sender the sender of the command
+     * @param args the arguments passed
+     * @param validated the shared filters validated on the path so far, or {@code null} if none
+     * @return the shared filters validated on the path including this command, or {@code null} if none
+     * @throws CommandException if a filter fails
+     */
+    private List<CommandFilter> applyFilters(CommandSender sender, CommandArguments args, List<CommandFilter> validated) throws CommandException {
+        if (this.initializer != null) {
+            initialize();
+        }
+        if (this.filters.isEmpty()) {
+            return validated;
+        }
+        FilterRegistry registry = this.manager.getFilterRegistry();
         for (CommandFilter filter : this.filters) {
+            if (registry.isShared(filter)) {
+                if (validated == null) {
+                    validated = new ArrayList<>(4);
+                } else if (containsSame(validated, filter)) {
+                    continue;
+                }
+                validated.add(filter);
+            }
             filter.validate(this, sender, args);
         }
+        return validated;
+    }
 
-        if (mode.step(this, sender, args)) {
-            return;
+    private static boolean containsSame(List<CommandFilter> filters, CommandFilter filter) {
+        for (int i = 0; i < filters.size(); i++) {
+            if (filters.get(i) == filter) {
+                return true;
+            }
         }
-        processChild(sender, args, mode);
+        return false;
     }
 
-    protected void processChild(CommandSender sender, CommandArguments args, ProcessingMode mode) throws CommandException {
-        String childName;
-        childName = args.popSubCommand(); // No need to normalize here, as we use getChild(), which normalizes the name itself.
-        this.childLock.readLock().lock();
-        try {
-            Command child = getChild(childName);
+    /**
+     * Pops the next subcommand from {@code args} and resolves it to a child of this command, following any aliases on the way.
+     *
+     * @param args the arguments passed
+     * @return the child to process next
+     * @throws CommandException if there is no child or alias with the popped name
+     */
+    protected Command resolveChild(CommandArguments args) throws CommandException {
+        Object next = findChild(args, false);
+        if (next instanceof CommandResult) {
+            ((CommandResult) next).rethrow();
+        }
+        return (Command) next;
+    }
+
+    /**
+     * Non-throwing version of {@link #resolveChild(CommandArguments)}.
+     *
+     * @param stopAtHooks whether to return the aliases that must be processed through {@link Alias#process(CommandSender, CommandArguments, ProcessingMode)
+     *            Alias.process}, because it or the {@code processChild} of their parent may be overridden, instead of following them
+     * @return the child to process next, an alias if {@code stopAtHooks} is set, or a {@link CommandResult} describing why there is none
+     */
+    private Object findChild(CommandArguments args, boolean stopAtHooks) {
+        Command parent = this;
+        while (true) {
+            String childName = args.tryPopSubCommand();
+            if (args.getLastOutcome().isFailure()) {
+                return CommandResult.invalidArgument(parent, args);
+            }
+            DispatchTable dispatch = parent.dispatch;
+            int slot = dispatch.find(childName, manager);
+            Command child = dispatch.getChild(slot);
+            if (child == null) {
+                child = parent.getChildBySimpleName(dispatch, childName);
+            }
             if (child != null) {
-                child.process(sender, args, mode);
-                return;
+                return child;
             }
-        } finally {
-            this.childLock.readLock().unlock();
-        }
-        this.aliasLock.readLock().lock();
-        try {
-            Alias alias = this.aliases.get(manager.normalizeChildName(childName)); // Just need to normalize here, cause we directly access the map.
-            if (alias != null) {
-                alias.process(sender, args, mode);
-                return;
+            Alias alias = dispatch.getAlias(slot);
+            if (alias == null) {
+                return CommandResult.unknownSubcommand(parent, args.getPastCommandString(), childName);
             }
-        } finally {
-            this.aliasLock.readLock().unlock();
+            if (stopAtHooks && (alias.getClass() != Alias.class || alias.getParent().getClass() != Command.class)) {
+                return alias;
+            }
+            alias.applyOverrides(args);
+            parent = alias.getParent();
         }
-        throw new UnknownSubcommandException(this, args.getPastCommandString(), childName);
     }
 
     /**
@@ -140,13 +281,52 @@ public class Command implements Named {
         process(sender, args, EXECUTE);
     }
 
+    /**
+     * Non-throwing version of {@link #execute(CommandSender, CommandArguments)}.
+     *
+     * @param sender
+     * @param args
+     * @return the result of executing the command
+     */
+    public CommandResult tryExecute(CommandSender sender, CommandArguments args) {
+        return tryProcess(sender, args, EXECUTE);
+    }
+
+    /**
+     * Executes this command with the specified args on {@code executor}. {@link AsyncCommandExecutor}s are run asynchronously, other executors are run on {@code executor}.
+     *
+     * @param sender
+     * @param args
+     * @param executor the executor to process the command on
+     * @return a future which completes once the command execution is done, or fails with the {@link CommandException} which occurred
+     */
+    public ListenableFuture<Void> executeAsync(CommandSender sender, CommandArguments args, Executor executor) {
+        return new ExecuteAsync(this, sender, args, executor).start();
+    }
+
     public int complete(CommandSender sender, CommandArguments args, int cursor, List<CharSequence> candidates) throws CommandException {
+        CompletionCache cache = manager.getCompletionCache();
+        CompletionCache.Key key = cache == null ? null : cache.key(this, sender, args, cursor);
+        long generation = 0;
+        if (key != null) {
+            CompletionCache.Result cached = cache.get(key);
+            if (cached != null) {
+                if (cached.getPosition() >= 0) {
+                    candidates.addAll(cached.getCandidates());
+                }
+                return cached.getPosition();
+            }
+            generation = cache.getGeneration();
+        }
         Complete completer = new Complete(cursor);
         process(sender, args, completer);
         int pos = completer.getPosition();
         if (pos >= 0) {
             candidates.addAll(completer.getCandidates());
         }
+        if (key != null && completer.isCacheable()) {
+            cache.put(key, new CompletionCache.Result(key, pos, completer.getCandidates(), completer.getCompletedBy()), generation);
+        }
         return pos;
     }
 
@@ -170,10 +350,113 @@ public class Command implements Named {
         }
     }
 
+    /**
+     * Executes commands like {@link Execute}, except that {@link AsyncCommandExecutor}s are run asynchronously.
+     * When one is reached, processing stops and resumes with its children on the {@link Executor} once its future completes with {@code false}.
+     */
+    protected static class ExecuteAsync implements ProcessingMode, Runnable, FutureCallback<Boolean> {
+        private final CommandSender sender;
+        private final CommandArguments args;
+        private final Executor executor;
+        private final SettableFuture<Void> result = SettableFuture.create();
+        private Command next;
+        private Command resumeAfter = null;
+        private ListenableFuture<Boolean> pending = null;
+
+        public ExecuteAsync(Command command, CommandSender sender, CommandArguments args, Executor executor) {
+            this.next = command;
+            this.sender = sender;
+            this.args = args;
+            this.executor = executor;
+        }
+
+        /**
+         * Submits the processing to the executor.
+         *
+         * @return the future which completes once the command execution is done, or fails with the {@link CommandException} which occurred
+         */
+        public ListenableFuture<Void> start() {
+            submit();
+            return this.result;
+        }
+
+        private void submit() {
+            try {
+                this.executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                this.result.setException(e);
+            }
+        }
+
+        @Override
+        public boolean step(Command command, CommandSender sender, CommandArguments args) throws CommandException {
+            CommandExecutor executor = command.getExecutor();
+            if (executor instanceof AsyncCommandExecutor) {
+                // The callback is only added after processing returned, so that a completed future can't resume while we're still processing
+                this.resumeAfter = command;
+                this.pending = ((AsyncCommandExecutor) executor).executeAsync(command, sender, args, this.executor);
+                return true;
+            }
+            return EXECUTE.step(command, sender, args);
+        }
+
+        @Override
+        public void run() {
+            CommandResult processed;
+            try {
+                Command command = this.next;
+                this.next = null;
+                if (command != null) {
+                    processed = command.tryProcess(this.sender, this.args, this);
+                } else {
+                    Object child = this.resumeAfter.descend(this.sender, this.args, this);
+                    if (child instanceof Command) {
+                        processed = ((Command) child).tryProcess(this.sender, this.args, this);
+                    } else {
+                        processed = (CommandResult) child;
+                    }
+                }
+            } catch (CommandException e) {
+                this.result.setException(e);
+                return;
+            } catch (RuntimeException e) {
+                this.result.setException(e);
+                return;
+            }
+            if (!processed.isSuccess()) {
+                this.result.setException(processed.getException());
+                return;
+            }
+            ListenableFuture<Boolean> pending = this.pending;
+            if (pending == null) {
+                this.result.set(null);
+                return;
+            }
+            this.pending = null;
+            Futures.addCallback(pending, this, MoreExecutors.directExecutor());
+        }
+
+        @Override
+        public void onSuccess(Boolean done) {
+            if (done != null && done) {
+                this.result.set(null);
+            } else {
+                submit(); // Resume with the children of the command which has just finished
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            this.result.setException(t);
+        }
+    }
+
     protected static class Complete implements ProcessingMode {
         private final int cursor;
         private List<String> candidates = null;
         private int position = -1;
+        private boolean cacheable = true;
+        private Command completedBy = null;
 
         public Complete(int cursor) {
             this.cursor = cursor;
@@ -182,10 +465,14 @@ public class Command implements Named {
         @Override
         public boolean step(Command command, CommandSender sender, CommandArguments args) throws CommandException {
             CommandExecutor executor = command.getExecutor();
+            completedBy = command;
             if (executor != null) {
                 if (!(executor instanceof CompletingCommandExecutor)) {
                     return true; // We can't complete anything, cause the command doesn't support it. We're done.
                 }
+                if (!(executor instanceof CacheableCompletingCommandExecutor)) {
+                    cacheable = false;
+                }
                 List<String> cands = new ArrayList<>();
                 int pos = ((CompletingCommandExecutor) executor).complete(command, sender, args, cursor, cands);
                 if (pos >= -1) {
@@ -198,14 +485,12 @@ public class Command implements Named {
             if (argindex.getX() > 0) {
                 return false; // Something further than next arg should be completed, find the child as usual and call us again.
             }
-            String key = CommandArguments.SUBCOMMAND_ARGNAME + args.getDepth();
+            String key = ArgumentKeys.subCommand(args.getDepth());
             if (args.hasOverride(key)) {
                 return false; // We have override for next subcommand name, so that's not what we're completing.
             }
-            TreeSet<String> children = new TreeSet<>(command.getChildren().keySet());
-            children.addAll(command.getAliases().keySet());
             candidates = new ArrayList<>();
-            position = args.complete(key, cursor, children, candidates);
+            position = args.complete(key, cursor, command.getSubcommandNames(), candidates);
             return true;
         }
 
@@ -217,6 +502,20 @@ public class Command implements Named {
             return position;
         }
 
+        /**
+         * @return whether the result only depends on the command tree, so it may be kept in a {@link CompletionCache}
+         */
+        public boolean isCacheable() {
+            return cacheable;
+        }
+
+        /**
+         * @return the command which completed the command line
+         */
+        public Command getCompletedBy() {
+            return completedBy;
+        }
+
     }
 
     protected static class Get implements ProcessingMode {
@@ -257,6 +556,7 @@ public class Command implements Named {
 
     public void setExecutor(CommandExecutor executor) {
         this.executor = executor;
+        invalidateCompletions();
     }
 
     public String getPermission() {
@@ -265,6 +565,7 @@ public class Command implements Named {
 
     public void setPermission(String permission) {
         this.permission = permission;
+        invalidateCompletions();
     }
 
     public boolean hasPermission(CommandSender sender) {
@@ -308,15 +609,59 @@ public class Command implements Named {
     }
 
     public boolean addFilter(CommandFilter filter) {
-        return this.filters.add(filter);
+        boolean changed = this.filters.add(filter);
+        invalidateCompletions();
+        return changed;
     }
 
     public boolean addFilters(CommandFilter... filter) {
-        return this.filters.addAll(Arrays.asList(filter));
+        boolean changed = this.filters.addAll(Arrays.asList(filter));
+        invalidateCompletions();
+        return changed;
     }
 
     public boolean removeFilter(CommandFilter filter) {
-        return this.filters.remove(filter);
+        boolean changed = this.filters.remove(filter);
+        invalidateCompletions();
+        return changed;
+    }
+
+    public CommandInitializer getInitializer() {
+        return this.initializer;
+    }
+
+    /**
+     * Sets the initializer that will set up this command the first time it's processed, before its filters are applied.
+     * <p>
+     * This lets the executor and filters be created only for the commands that are actually used. Permissions, children and aliases are needed before that,
+     * so they should be set up front.
+     *
+     * @param initializer the initializer, or {@code null} to not run one
+     */
+    public void setInitializer(CommandInitializer initializer) {
+        this.initializer = initializer;
+    }
+
+    /**
+     * Runs and clears the {@link #setInitializer(CommandInitializer) initializer}, if it wasn't run yet. Concurrent callers wait for it to finish.
+     * The changes it makes to this command don't invalidate completions, so initializing a command doesn't clear the {@link CompletionCache} or reset
+     * {@link CompletionSession}s.
+     */
+    private void initialize() {
+        synchronized (this.initializerLock) {
+            CommandInitializer initializer = this.initializer;
+            if (initializer != null) {
+                this.initializingThread = Thread.currentThread();
+                try {
+                    initializer.initialize(this);
+                } finally {
+                    this.initializingThread = null;
+                }
+                if (this.initializer == initializer) {
+                    this.initializer = null;
+                }
+            }
+        }
     }
 
     public CommandManager getManager() {
@@ -324,17 +669,34 @@ public class Command implements Named {
     }
 
     /**
-     * Clears the executor and filters of this command.
+     * Clears the executor, filters and initializer of this command.
      */
     public void clear() {
         setExecutor(null);
         this.filters.clear();
+        this.initializer = null;
+        invalidateCompletions();
+    }
+
+    /**
+     * Tells the manager that this command changed, which clears its cached completions and {@link CompletionSession}s, as they may depend on the change.
+     */
+    private void invalidateCompletions() {
+        if (this.initializingThread == Thread.currentThread()) {
+            return;
+        }
+        this.manager.onCommandChange();
     }
 
     // ---------- Children
 
+    /**
+     * Gets the children of this command. The returned map is an immutable snapshot and does not reflect later changes.
+     *
+     * @return the children of this command, mapped by name
+     */
     public Map<String, Command> getChildren() {
-        return Collections.unmodifiableMap(this.children);
+        return this.children;
     }
 
     /**
@@ -346,28 +708,22 @@ public class Command implements Named {
      * @return
      */
     public Command getChild(String name) {
-        name = manager.normalizeChildName(name);
-        this.childLock.readLock().lock();
-        try {
-            Command get = this.children.get(name);
-            try {
-                return get == null ? this.children.get(getSimpleName(name)) : get;
-            } catch (IllegalArgumentException e) {
-            }
-            return null;
-        } finally {
-            this.childLock.readLock().unlock();
+        DispatchTable dispatch = this.dispatch;
+        Command get = dispatch.getChild(dispatch.find(name, manager));
+        return get == null ? getChildBySimpleName(dispatch, name) : get;
+    }
+
+    private Command getChildBySimpleName(DispatchTable dispatch, String name) {
+        long range = findSimpleName(name);
+        if (range < 0) {
+            return null; // Not a full name, so there's no simple name to fall back to.
         }
+        return dispatch.getChild(dispatch.find(name, (int) (range >>> 32), (int) range, manager));
     }
 
     public boolean hasChild(String name) {
-        name = manager.normalizeChildName(name);
-        this.childLock.readLock().lock();
-        try {
-            return this.children.containsKey(name);
-        } finally {
-            this.childLock.readLock().unlock();
-        }
+        DispatchTable dispatch = this.dispatch;
+        return dispatch.getChild(dispatch.find(name, manager)) != null;
     }
 
     /**
@@ -386,10 +742,10 @@ public class Command implements Named {
         name = manager.normalizeChildName(name);
         this.childLock.writeLock().lock();
         try {
-            Command old = this.children.put(name, command);
+            Command old = putChildSnapshot(name, command);
             this.manager.onCommandChildChange(this, name, old, command);
             if (old != null && old != command) {
-                this.manager.onCommandChildChange(this, old.getName(), this.children.put(old.getName(), old), old);
+                this.manager.onCommandChildChange(this, old.getName(), putChildSnapshot(old.getName(), old), old);
             }
         } finally {
             this.childLock.writeLock().unlock();
@@ -418,7 +774,7 @@ public class Command implements Named {
         try {
             Command previous = this.children.get(name);
             if (previous == null) {
-                this.children.put(name, command);
+                putChildSnapshot(name, command);
                 this.manager.onCommandChildChange(this, name, previous, command);
             }
             return previous;
@@ -450,7 +806,7 @@ public class Command implements Named {
             if (this.children.get(name) != null) { // TODO: Fail silently if it's the same?
                 throw new ChildAlreadyExistException("Child already exists for name: " + name + " for command: " + this.name);
             }
-            this.children.put(name, command);
+            putChildSnapshot(name, command);
             this.manager.onCommandChildChange(this, name, null, command);
         } finally {
             this.childLock.writeLock().unlock();
@@ -475,10 +831,10 @@ public class Command implements Named {
         try {
             if (this.children.get(command.getSimpleName()) == null) {
                 // TODO: logging?
-                this.children.put(command.getSimpleName(), command);
+                putChildSnapshot(command.getSimpleName(), command);
                 this.manager.onCommandChildChange(this, command.getSimpleName(), null, command);
             } else {
-                Command old = this.children.put(command.getName(), command);
+                Command old = putChildSnapshot(command.getName(), command);
                 this.manager.onCommandChildChange(this, command.getName(), old, command);
             }
         } finally {
@@ -496,7 +852,7 @@ public class Command implements Named {
         name = manager.normalizeChildName(name);
         this.childLock.writeLock().lock();
         try {
-            Command old = this.children.remove(name);
+            Command old = removeChildSnapshot(name);
             this.manager.onCommandChildChange(this, name, old, null);
             return old;
         } finally {
@@ -504,6 +860,35 @@ public class Command implements Named {
         }
     }
 
+    /**
+     * Publishes a new snapshot of the children with {@code command} mapped to {@code name}. Must be called while holding the write lock of {@link #childLock}.
+     *
+     * @return the command previously mapped to {@code name}, or {@code null}
+     */
+    private Command putChildSnapshot(String name, Command command) {
+        Map<String, Command> updated = new HashMap<>(this.children);
+        Command old = updated.put(name, command);
+        this.children = Collections.unmodifiableMap(updated);
+        recompileDispatch();
+        return old;
+    }
+
+    /**
+     * Publishes a new snapshot of the children without {@code name}. Must be called while holding the write lock of {@link #childLock}.
+     *
+     * @return the command previously mapped to {@code name}, or {@code null}
+     */
+    private Command removeChildSnapshot(String name) {
+        if (!this.children.containsKey(name)) {
+            return null;
+        }
+        Map<String, Command> updated = new HashMap<>(this.children);
+        Command old = updated.remove(name);
+        this.children = Collections.unmodifiableMap(updated);
+        recompileDispatch();
+        return old;
+    }
+
     /**
      * Gets the alias mapped to the specific name.
      *
@@ -511,13 +896,8 @@ public class Command implements Named {
      * @return
      */
     public Alias getAlias(String name) {
-        name = manager.normalizeChildName(name);
-        this.aliasLock.readLock().lock();
-        try {
-            return this.aliases.get(name);
-        } finally {
-            this.aliasLock.readLock().unlock();
-        }
+        DispatchTable dispatch = this.dispatch;
+        return dispatch.getAlias(dispatch.find(name, manager));
     }
 
     /**
@@ -530,7 +910,7 @@ public class Command implements Named {
         name = manager.normalizeChildName(name);
         this.aliasLock.writeLock().lock();
         try {
-            Alias previous = this.aliases.put(name, alias);
+            Alias previous = putAliasSnapshot(name, alias);
             this.manager.onAliasChange(this, name, previous, alias);
         } finally {
             this.aliasLock.writeLock().unlock();
@@ -552,7 +932,7 @@ public class Command implements Named {
             if (previous != null && previous != alias) {
                 throw new AliasAlreadyCreatedException("Alias already created for name: " + name + " for command: " + this.name);
             }
-            this.aliases.put(name, alias);
+            putAliasSnapshot(name, alias);
             this.manager.onAliasChange(this, name, previous, alias);
         } finally {
             this.aliasLock.writeLock().unlock();
@@ -572,7 +952,7 @@ public class Command implements Named {
         try {
             Alias previous = this.aliases.get(name);
             if (previous == null) {
-                this.aliases.put(name, alias);
+                putAliasSnapshot(name, alias);
                 this.manager.onAliasChange(this, name, previous, alias);
             }
             return previous;
@@ -591,7 +971,7 @@ public class Command implements Named {
         name = manager.normalizeChildName(name);
         this.aliasLock.writeLock().lock();
         try {
-            Alias removed = this.aliases.remove(name);
+            Alias removed = removeAliasSnapshot(name);
             if (removed != null) {
                 this.manager.onAliasChange(this, name, removed, null);
             }
@@ -602,17 +982,66 @@ public class Command implements Named {
     }
 
     public boolean hasAlias(String name) {
-        name = manager.normalizeChildName(name);
-        this.aliasLock.readLock().lock();
-        try {
-            return this.aliases.containsKey(name);
-        } finally {
-            this.aliasLock.readLock().unlock();
-        }
+        DispatchTable dispatch = this.dispatch;
+        return dispatch.getAlias(dispatch.find(name, manager)) != null;
     }
 
+    /**
+     * Gets the aliases of this command. The returned map is an immutable snapshot and does not reflect later changes.
+     *
+     * @return the aliases of this command, mapped by name
+     */
     public Map<String, Alias> getAliases() {
-        return Collections.unmodifiableMap(this.aliases);
+        return this.aliases;
+    }
+
+    /**
+     * Gets the names of the children and aliases of this command, sorted. The set is kept up to date as children and aliases change, so completion doesn't need to sort them.
+     *
+     * @return an immutable snapshot of the sorted child and alias names
+     */
+    public SortedSet<String> getSubcommandNames() {
+        return this.dispatch.getSortedNames();
+    }
+
+    /**
+     * Publishes a new snapshot of the aliases with {@code alias} mapped to {@code name}. Must be called while holding the write lock of {@link #aliasLock}.
+     *
+     * @return the alias previously mapped to {@code name}, or {@code null}
+     */
+    private Alias putAliasSnapshot(String name, Alias alias) {
+        Map<String, Alias> updated = new HashMap<>(this.aliases);
+        Alias old = updated.put(name, alias);
+        this.aliases = Collections.unmodifiableMap(updated);
+        recompileDispatch();
+        return old;
+    }
+
+    /**
+     * Publishes a new snapshot of the aliases without {@code name}. Must be called while holding the write lock of {@link #aliasLock}.
+     *
+     * @return the alias previously mapped to {@code name}, or {@code null}
+     */
+    private Alias removeAliasSnapshot(String name) {
+        if (!this.aliases.containsKey(name)) {
+            return null;
+        }
+        Map<String, Alias> updated = new HashMap<>(this.aliases);
+        Alias old = updated.remove(name);
+        this.aliases = Collections.unmodifiableMap(updated);
+        recompileDispatch();
+        return old;
+    }
+
+    /**
+     * Rebuilds the dispatch table of this command from the current children and aliases. Only this command's table is rebuilt; the tables of the children are untouched.
+     * Child and alias writers hold different locks, so the table is swapped under its own monitor. The last writer to get here always sees both latest snapshots.
+     */
+    private void recompileDispatch() {
+        synchronized (this.dispatchLock) {
+            this.dispatch = new DispatchTable(this.children, this.aliases, this.manager);
+        }
+        invalidateCompletions();
     }
 
     // ---------- Object overrides
@@ -635,15 +1064,41 @@ public class Command implements Named {
     }
 
     public static String getSimpleName(String fullName) {
-        String names[] = fullName.split(":");
-        if (names.length != 2) {
+        long range = findSimpleName(fullName);
+        if (range < 0) {
             throw new IllegalArgumentException("Invalid command name! Must be full name!");
         }
-        if (!names[1].contains(".")) {
-            return names[1];
+        return fullName.substring((int) (range >>> 32), (int) range);
+    }
+
+    /**
+     * Finds the simple name in {@code fullName}, which is the last segment of the part after the colon.
+     * Trailing colons and periods are ignored, like the empty trailing strings dropped by {@link String#split(String)}.
+     *
+     * @param fullName the full name, e.g. {@code provider:command.subcommand}
+     * @return the start index of the simple name in the upper 32 bits and its end index in the lower 32 bits, or {@code -1} if {@code fullName} isn't a full name
+     */
+    private static long findSimpleName(String fullName) {
+        int end = fullName.length();
+        while (end > 0 && fullName.charAt(end - 1) == ':') {
+            --end;
+        }
+        int colon = fullName.indexOf(':');
+        if (colon < 0 || colon >= end - 1) {
+            return -1;
+        }
+        int next = fullName.indexOf(':', colon + 1);
+        if (next >= 0 && next < end) {
+            return -1;
+        }
+        while (end > colon + 1 && fullName.charAt(end - 1) == '.') {
+            --end;
+        }
+        if (end == colon + 1) {
+            return -1;
         }
-        String[] path = names[1].split("\\.");
-        return path[path.length - 1];
+        int start = Math.max(fullName.lastIndexOf('.', end - 1), colon) + 1;
+        return ((long) start << 32) | end;
     }
 
     @Override
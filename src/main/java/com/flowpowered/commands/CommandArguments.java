@@ -48,7 +48,11 @@ import com.flowpowered.math.vector.Vector3f;
 import com.flowpowered.commons.StringUtil;
 
 import com.flowpowered.commands.flags.CommandFlags;
+import com.flowpowered.commands.syntax.ArgumentTokens;
 import com.flowpowered.commands.syntax.Syntax;
+import com.flowpowered.commands.syntax.TokenizingSyntax;
+import com.flowpowered.commands.util.EnumLookup;
+import com.flowpowered.commands.util.NumberParser;
 import com.flowpowered.commands.util.RelativeVector3f;
 
 /**
@@ -64,16 +68,27 @@ public class CommandArguments {
 
     private final StringBuilder commandString = new StringBuilder();
     private final Map<String, Object> parsedArgs = new HashMap<String, Object>();
+    private final PrimitiveSlots primitiveArgs = new PrimitiveSlots();
     private final Map<String, String> argOverrides = new HashMap<String, String>();
-    private final List<String> args;
-    private final TIntList paddings;
+    private List<String> args;
+    private String commandLine;
+    private TIntList paddings;
+    private int[] argumentOffsets = null;
     private int index = 0;
     private int depth = 0;
     private Pair<String, Integer> unclosedQuote;
-    private final boolean allUnescaped;
-    private final String separator;
-    private final Syntax syntax;
+    private ParseOutcome outcome = ParseOutcome.SUCCESS;
+    private String failureArgName;
+    private String failureReason;
+    private CompletionOptions completionOptions = CompletionOptions.DEFAULT;
+    private boolean allUnescaped;
+    private String separator;
+    private Syntax syntax;
     private final Logger logger;
+    // Kept between resets, so that parsing into reused arguments doesn't allocate new buffers
+    private TIntArrayList paddingBuffer = null;
+    private ArgumentTokens.Builder tokenBuffer = null;
+    private ArrayList<String> splitBuffer = null;
 
     public CommandArguments(List<String> args) {
         this(args, DEFAULT_LOGGER);
@@ -81,6 +96,7 @@ public class CommandArguments {
 
     public CommandArguments(List<String> args, Logger logger) {
         this.args = new ArrayList<String>(args);
+        this.commandLine = null;
         this.unclosedQuote = null;
         this.allUnescaped = true;
         this.separator = " ";
@@ -102,15 +118,8 @@ public class CommandArguments {
     }
 
     public CommandArguments(String args, Syntax syntax, Logger logger) {
-        List<String> split = new ArrayList<>();
-        this.paddings = new TIntArrayList();
-        this.unclosedQuote = syntax.splitNoEmpties(args, split, paddings);  // modifies the lists
-        this.args = split;
-
-        this.allUnescaped = false;
-        this.syntax = syntax;
-        this.separator = syntax.getSeparator();
         this.logger = logger;
+        parse(args, syntax);
     }
 
     protected CommandArguments(List<String> args, TIntList paddings, Syntax syntax, Pair<String, Integer> unclosedQuote) {
@@ -121,6 +130,7 @@ public class CommandArguments {
         this.paddings = paddings;
         this.unclosedQuote = unclosedQuote;
         this.args = args;
+        this.commandLine = null;
 
         this.allUnescaped = false;
         this.syntax = syntax;
@@ -128,6 +138,77 @@ public class CommandArguments {
         this.logger = logger;
     }
 
+    /**
+     * Makes these arguments as if they were just created with {@link #CommandArguments(String, Syntax, Logger) new CommandArguments(args, syntax, getLogger())}.
+     * <p>
+     * All the state of the previous use is dropped: parsed values, overrides, the past command string, the index and depth, the last failure and the
+     * {@link #getCompletionOptions() completion options}. The buffers used for splitting the input are reused, so lists previously returned by
+     * {@link #get()} or {@link #getAll()} must not be used anymore.
+     *
+     * @param args the command line to parse
+     * @param syntax the syntax of the command line
+     * @return these arguments
+     * @see CommandArgumentsPool
+     */
+    public CommandArguments reset(String args, Syntax syntax) {
+        clearState();
+        parse(args, syntax);
+        return this;
+    }
+
+    /**
+     * Drops everything but the reusable buffers, so that nothing of the previous use can leak into the next one.
+     */
+    void clearState() {
+        this.commandString.setLength(0);
+        this.parsedArgs.clear();
+        this.primitiveArgs.clear();
+        this.argOverrides.clear();
+        this.args = Collections.emptyList();
+        this.commandLine = null;
+        this.paddings = null;
+        this.argumentOffsets = null;
+        this.index = 0;
+        this.depth = 0;
+        this.unclosedQuote = null;
+        this.outcome = ParseOutcome.SUCCESS;
+        this.failureArgName = null;
+        this.failureReason = null;
+        this.completionOptions = CompletionOptions.DEFAULT;
+    }
+
+    private void parse(String args, Syntax syntax) {
+        if (paddingBuffer == null) {
+            paddingBuffer = new TIntArrayList();
+        } else {
+            paddingBuffer.resetQuick();
+        }
+        this.paddings = paddingBuffer;
+        this.commandLine = args;
+        if (syntax instanceof TokenizingSyntax) {
+            // Arguments are only copied out of the input when something asks for them
+            if (tokenBuffer == null) {
+                tokenBuffer = new ArgumentTokens.Builder();
+            } else {
+                tokenBuffer.clear();
+            }
+            this.unclosedQuote = ((TokenizingSyntax) syntax).tokenize(args, tokenBuffer, paddings);
+            this.args = tokenBuffer.build(args);
+        } else {
+            if (splitBuffer == null) {
+                splitBuffer = new ArrayList<>();
+            } else {
+                splitBuffer.clear();
+            }
+            this.unclosedQuote = syntax.splitNoEmpties(args, splitBuffer, paddings);  // modifies the lists
+            this.args = splitBuffer;
+        }
+
+        this.allUnescaped = false;
+        this.syntax = syntax;
+        this.separator = syntax.getSeparator();
+    }
+
     /**
      * Returns all the remaining arguments.
      *
@@ -141,6 +222,15 @@ public class CommandArguments {
         return Collections.unmodifiableList(args);
     }
 
+    /**
+     * Returns the command line these arguments were parsed from.
+     *
+     * @return the command line, or {@code null} if these arguments weren't parsed from a string
+     */
+    public String getCommandLine() {
+        return commandLine;
+    }
+
     /**
      * Returns the length of the arguments.
      *
@@ -196,6 +286,32 @@ public class CommandArguments {
         return index;
     }
 
+    /**
+     * Copies the state built up while processing these arguments into arguments without any input: the past command string, the depth, the parsed values and the overrides.
+     * Together with {@link #continueFrom(CommandArguments)}, this lets processing continue from a known command on new input, without parsing the input before it again.
+     *
+     * @return the saved state
+     */
+    protected CommandArguments saveState() {
+        CommandArguments state = new CommandArguments(Collections.<String>emptyList(), logger);
+        state.continueFrom(this);
+        return state;
+    }
+
+    /**
+     * Replaces the processing state of these arguments with the one of {@code state}, as if the input {@code state} was processed from came right before these arguments.
+     *
+     * @param state the arguments to take the state from, usually {@link #saveState() saved} ones
+     */
+    protected void continueFrom(CommandArguments state) {
+        this.commandString.setLength(0);
+        this.commandString.append(state.commandString);
+        this.parsedArgs.putAll(state.parsedArgs);
+        this.primitiveArgs.putAll(state.primitiveArgs);
+        this.argOverrides.putAll(state.argOverrides);
+        this.depth = state.depth;
+    }
+
     protected TIntList getPaddings() {
         return TCollections.unmodifiableList(paddings);
     }
@@ -204,13 +320,41 @@ public class CommandArguments {
         return args.getPaddings();
     }
 
+    /**
+     * Returns a copy of the specified range of the arguments. Arguments backed by {@link ArgumentTokens} are shared instead of copied, as they're immutable.
+     *
+     * @param begin - from which arg, inclusive
+     * @param end - to which arg, exclusive
+     * @return
+     */
+    protected List<String> getArgs(int begin, int end) {
+        if (this.args instanceof ArgumentTokens) {
+            return ((ArgumentTokens) this.args).subList(begin, end);
+        }
+        return new ArrayList<>(this.args.subList(begin, end));
+    }
+
+    protected static List<String> getArgs(CommandArguments args, int begin, int end) {
+        return args.getArgs(begin, end);
+    }
+
+    /**
+     * @return the length of the raw argument, without creating a string for it if it hasn't been accessed yet
+     */
+    private int argLength(int index) {
+        if (this.args instanceof ArgumentTokens) {
+            return ((ArgumentTokens) this.args).getLength(index);
+        }
+        return this.args.get(index).length();
+    }
+
     /**
      * @param begin - from which arg, inclusive
      * @param end - to which arg, exclusive
      * @return
      */
     public CommandArguments subArgs(int begin, int end) {
-        List<String> newArgs = new ArrayList<>(this.args.subList(begin, end));
+        List<String> newArgs = getArgs(begin, end);
         TIntList newPaddings = new TIntArrayList(this.paddings.subList(begin, end));
         int offset = absoluteArgumentToOffset(new Vector2i(begin, 0));
         if (newPaddings.size() > 0) {
@@ -220,7 +364,9 @@ public class CommandArguments {
         if (unclosedQuote != null) {
             newUnclosedQuote = new ImmutablePair<>(unclosedQuote.getLeft(), unclosedQuote.getRight());
         }
-        return new CommandArguments(newArgs, newPaddings, syntax, newUnclosedQuote, logger);
+        CommandArguments sub = new CommandArguments(newArgs, newPaddings, syntax, newUnclosedQuote, logger);
+        sub.setCompletionOptions(completionOptions);
+        return sub;
     }
 
     public Pair<String, Integer> getUnclosedQuote() {
@@ -231,20 +377,24 @@ public class CommandArguments {
         if (allUnescaped) {
             return null;
         }
-        int word = 0;
-        final int sepLength = separator.length();
-        int length = 0;
-        while (word < args.size()) {
-            int padding = sepLength * paddings.get(word);
-            int wordLength = args.get(word).length() + sepLength;
-            length += padding;
-            if (cursor < length + wordLength) {
-                break;
+        final int[] offsets = getArgumentOffsets();
+        final int count = offsets.length - 1;
+        // Find the first argument which ends (together with the following separator) after the cursor
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cursor < offsets[mid + 1]) {
+                high = mid;
+            } else {
+                low = mid + 1;
             }
-            length += wordLength;
-            ++word;
         }
-        return new Vector2i(word, cursor - length);
+        int start = offsets[low];
+        if (low < count) {
+            start += separator.length() * paddings.get(low);
+        }
+        return new Vector2i(low, cursor - start);
     }
 
     public Vector2i offsetToArgument(int cursor) {
@@ -256,14 +406,31 @@ public class CommandArguments {
     }
 
     public int absoluteArgumentToOffset(Vector2i pos) {
-        int length = 0;
-        final int sepLength = separator.length();
-        int i;
-        for (i = 0; i < pos.getX(); ++i) {
-            length += args.get(i).length() + sepLength * (paddings.get(i) + 1);
+        final int[] offsets = getArgumentOffsets();
+        int i = Math.max(pos.getX(), 0);
+        if (i >= offsets.length) {
+            throw new IndexOutOfBoundsException("Index: " + pos.getX() + ", Size: " + args.size());
         }
-        length += (i < paddings.size() ? paddings.get(i) : 0) + pos.getY();
-        return length;
+        return offsets[i] + (i < paddings.size() ? paddings.get(i) : 0) + pos.getY();
+    }
+
+    /**
+     * Returns the offsets at which the paddings in front of each argument begin, plus the total length of all the arguments at the end.
+     * The table is built on first use, so that every cursor/argument conversion after that doesn't need to walk the arguments.
+     *
+     * @return the prefix sums of the argument lengths, each including the separators following the argument
+     */
+    private int[] getArgumentOffsets() {
+        int[] offsets = this.argumentOffsets;
+        if (offsets == null) {
+            final int sepLength = separator.length();
+            offsets = new int[args.size() + 1];
+            for (int i = 0; i < args.size(); ++i) {
+                offsets[i + 1] = offsets[i] + argLength(i) + sepLength * (paddings.get(i) + 1);
+            }
+            this.argumentOffsets = offsets;
+        }
+        return offsets;
     }
 
     public int argumentToOffset(Vector2i pos) {
@@ -311,12 +478,40 @@ public class CommandArguments {
         return completeRaw(rawStart, position.add(index, 0), potentialCandidates, potentialCandidatesOffset, false, candidates);
     }
 
+    /**
+     * @return how {@link #completeRaw} matches and limits candidates
+     */
+    public CompletionOptions getCompletionOptions() {
+        return completionOptions;
+    }
+
+    /**
+     * Sets how {@link #completeRaw}, and therefore all {@code complete*} methods, match and limit candidates. Sub-arguments inherit these options.
+     *
+     * @param completionOptions the options, or {@code null} for {@link CompletionOptions#DEFAULT}
+     */
+    public void setCompletionOptions(CompletionOptions completionOptions) {
+        this.completionOptions = completionOptions == null ? CompletionOptions.DEFAULT : completionOptions;
+    }
+
     public int completeRaw(String rawStart, Vector2i absolutePosition, SortedSet<String> potentialCandidates, int potentialCandidatesOffset, boolean potentialCandidatesRaw, List<String> candidates) {
         String start = unescape(rawStart);
-        SortedSet<String> matches = potentialCandidates.tailSet(start);
         String unclosedQuote = getReachedUnclosedQuote();
+        if (completionOptions.isFuzzy() && unclosedQuote.isEmpty() && start.equals(rawStart)) {
+            // Fuzzy candidates replace the whole typed text, so they're only safe when it doesn't contain any quoting or escaping
+            List<String> matches = new ArrayList<>();
+            if (completionOptions.topMatches(potentialCandidates, start, matches) == 0) {
+                return -1;
+            }
+            for (String match : matches) {
+                candidates.add((potentialCandidatesRaw ? match : escape(match)) + getSeparator());
+            }
+            return absoluteArgumentToOffset(new Vector2i(absolutePosition.getX(), potentialCandidatesOffset));
+        }
+        SortedSet<String> matches = potentialCandidates.tailSet(start);
+        int limit = completionOptions.getMaxCandidates();
         for (String match : matches) {
-            if (!match.startsWith(start)) {
+            if (!match.startsWith(start) || limit-- == 0) {
                 break;
             }
             String subMatch = match.substring(start.length());
@@ -454,8 +649,81 @@ public class CommandArguments {
     public <T> T success(String argName, T parsedValue, boolean fallbackValue) {
         if (argName != null) { // Store arg
             this.parsedArgs.put(argName, parsedValue);
+            if (!this.primitiveArgs.isEmpty()) {
+                this.primitiveArgs.remove(argName);
+            }
         }
+        recordSuccess(argName, fallbackValue);
+        return parsedValue;
+    }
+
+    // The primitive parsers store their values without boxing them, unless a subclass overrides success, which then still gets every value, boxed.
+    private static final ClassValue<Boolean> OVERRIDES_SUCCESS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("success", String.class, Object.class).getDeclaringClass() != CommandArguments.class
+                        || type.getMethod("success", String.class, Object.class, boolean.class).getDeclaringClass() != CommandArguments.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+    };
+
+    private int successInt(String argName, int parsedValue, boolean fallbackValue) {
+        if (OVERRIDES_SUCCESS.get(getClass())) {
+            return fallbackValue ? success(argName, Integer.valueOf(parsedValue), true) : success(argName, Integer.valueOf(parsedValue));
+        }
+        storePrimitive(argName, PrimitiveSlots.INT, parsedValue);
+        recordSuccess(argName, fallbackValue);
+        return parsedValue;
+    }
+
+    private float successFloat(String argName, float parsedValue, boolean fallbackValue) {
+        if (OVERRIDES_SUCCESS.get(getClass())) {
+            return fallbackValue ? success(argName, Float.valueOf(parsedValue), true) : success(argName, Float.valueOf(parsedValue));
+        }
+        storePrimitive(argName, PrimitiveSlots.FLOAT, Float.floatToRawIntBits(parsedValue));
+        recordSuccess(argName, fallbackValue);
+        return parsedValue;
+    }
+
+    private double successDouble(String argName, double parsedValue, boolean fallbackValue) {
+        if (OVERRIDES_SUCCESS.get(getClass())) {
+            return fallbackValue ? success(argName, Double.valueOf(parsedValue), true) : success(argName, Double.valueOf(parsedValue));
+        }
+        storePrimitive(argName, PrimitiveSlots.DOUBLE, Double.doubleToRawLongBits(parsedValue));
+        recordSuccess(argName, fallbackValue);
+        return parsedValue;
+    }
+
+    private boolean successBoolean(String argName, boolean parsedValue, boolean fallbackValue) {
+        if (OVERRIDES_SUCCESS.get(getClass())) {
+            return fallbackValue ? success(argName, Boolean.valueOf(parsedValue), true) : success(argName, Boolean.valueOf(parsedValue));
+        }
+        storePrimitive(argName, PrimitiveSlots.BOOLEAN, parsedValue ? 1 : 0);
+        recordSuccess(argName, fallbackValue);
+        return parsedValue;
+    }
 
+    private void storePrimitive(String argName, byte type, long bits) {
+        if (argName != null) {
+            this.primitiveArgs.put(argName, type, bits);
+            if (!this.parsedArgs.isEmpty()) {
+                this.parsedArgs.remove(argName);
+            }
+        }
+    }
+
+    /**
+     * Records the success of the current argument operation after its value was stored: appends the argument to the past command string,
+     * and advances the index unless a fallback value was used.
+     *
+     * @param argName The name of the arg
+     * @param fallbackValue whether a default value was used instead of parsing the argument
+     */
+    protected void recordSuccess(String argName, boolean fallbackValue) {
+        this.outcome = fallbackValue ? ParseOutcome.DEFAULTED : ParseOutcome.SUCCESS;
         String valueOverride = getOverride(argName); // Add to parsed command string
         this.commandString.append(' ');
 
@@ -469,8 +737,6 @@ public class CommandArguments {
                 this.index++; // And increment index
             }
         }
-
-        return parsedValue;
     }
 
     /**
@@ -490,6 +756,103 @@ public class CommandArguments {
         }
     }
 
+    /**
+     * Returns the outcome of the last argument operation, which is how the {@code tryPop*} methods report failures.
+     *
+     * @return the outcome of the last {@code currentArgument}, {@code pop*} or {@link #success(String, Object, boolean) success} call
+     */
+    public ParseOutcome getLastOutcome() {
+        return this.outcome;
+    }
+
+    /**
+     * Creates the exception for the last failed argument operation. The exception is only created when this is called, so checking {@link #getLastOutcome()} alone costs nothing.
+     *
+     * @return the exception describing the failure, or {@code null} if the last operation didn't fail
+     */
+    public InvalidCommandArgumentException getLastFailure() {
+        if (!this.outcome.isFailure()) {
+            return null;
+        }
+        return failure(this.failureArgName, this.failureReason, this.outcome == ParseOutcome.MISSING);
+    }
+
+    /**
+     * @return the name of the argument of the last failed operation, or {@code null} if the last operation didn't fail
+     */
+    public String getLastFailureArgName() {
+        return failed() ? this.failureArgName : null;
+    }
+
+    /**
+     * @return the reason of the last failed operation, or {@code null} if the last operation didn't fail
+     */
+    public String getLastFailureReason() {
+        return failed() ? this.failureReason : null;
+    }
+
+    /**
+     * Records a failure of the current argument operation without throwing.
+     *
+     * @param argName The name of the argument
+     * @param reason The error that occurred
+     * @param silenceable Whether the error can be silenced by using the default value for the argument
+     * @see #failure(String, String, boolean)
+     */
+    protected void fail(String argName, String reason, boolean silenceable) {
+        this.outcome = silenceable ? ParseOutcome.MISSING : ParseOutcome.INVALID;
+        this.failureArgName = argName;
+        this.failureReason = reason;
+    }
+
+    private boolean failed() {
+        return this.outcome.isFailure();
+    }
+
+    private void throwIfFailed() throws InvalidCommandArgumentException {
+        if (failed()) {
+            throw getLastFailure();
+        }
+    }
+
+    /**
+     * Uses {@code def} if the last operation failed in a way that can be silenced.
+     */
+    private <T> T orDefault(T def) {
+        if (this.outcome == ParseOutcome.MISSING) {
+            return success(this.failureArgName, def, true);
+        }
+        return def;
+    }
+
+    private int orDefault(int def) {
+        if (this.outcome == ParseOutcome.MISSING) {
+            return successInt(this.failureArgName, def, true);
+        }
+        return def;
+    }
+
+    private float orDefault(float def) {
+        if (this.outcome == ParseOutcome.MISSING) {
+            return successFloat(this.failureArgName, def, true);
+        }
+        return def;
+    }
+
+    private double orDefault(double def) {
+        if (this.outcome == ParseOutcome.MISSING) {
+            return successDouble(this.failureArgName, def, true);
+        }
+        return def;
+    }
+
+    private boolean orDefault(boolean def) {
+        if (this.outcome == ParseOutcome.MISSING) {
+            return successBoolean(this.failureArgName, def, true);
+        }
+        return def;
+    }
+
     private static final Pattern QUOTE_ESCAPE_REGEX = Pattern.compile("\\\\([\"'])");
     private static final Pattern QUOTE_START_REGEX = Pattern.compile("(?:^| )(['\"])");
     private static final String QUOTE_END_REGEX = "[^\\\\](%s)(?: |$)";
@@ -516,18 +879,33 @@ public class CommandArguments {
     }
 
     public String currentArgument(String argName, boolean ignoreUnclosedQuote, boolean unescape) throws InvalidCommandArgumentException {
+        String current = tryCurrentArgument(argName, ignoreUnclosedQuote, unescape);
+        throwIfFailed();
+        return current;
+    }
+
+    /**
+     * Non-throwing version of {@link #currentArgument(String, boolean, boolean)}.
+     *
+     * @return the current argument, or {@code null} if there is none, in which case {@link #getLastOutcome()} tells why
+     */
+    public String tryCurrentArgument(String argName, boolean ignoreUnclosedQuote, boolean unescape) {
         if (hasOverride(argName)) {
+            this.outcome = ParseOutcome.SUCCESS;
             return getOverride(argName);
         }
 
         if (this.index >= this.args.size()) {
-            throw failure(argName, "Argument not present", true);
+            fail(argName, "Argument not present", true);
+            return null;
         }
 
         if (!ignoreUnclosedQuote && (this.index + 1 == this.args.size()) && (this.unclosedQuote != null)) {
-            throw failure(argName, "Unmatched quoted string! Quote char: " + this.unclosedQuote, false);
+            fail(argName, "Unmatched quoted string! Quote char: " + this.unclosedQuote, false);
+            return null;
         }
 
+        this.outcome = ParseOutcome.SUCCESS;
         String current = this.args.get(this.index);
 
         if (allUnescaped || !unescape) {
@@ -607,7 +985,7 @@ public class CommandArguments {
      */
     public void assertCompletelyParsed() throws InvalidCommandArgumentException {
         if (this.index < this.args.size()) {
-            if (index == args.size() - 1 && args.get(index).isEmpty()) {
+            if (index == args.size() - 1 && argLength(index) == 0) {
                 return;
             }
             throw failure("...", "Too many arguments are present!", false);
@@ -617,87 +995,173 @@ public class CommandArguments {
     // Argument storage methods
 
     public String popString(String argName) throws InvalidCommandArgumentException {
-        String arg = currentArgument(argName);
-        return success(argName, arg);
+        String value = parseString(argName);
+        throwIfFailed();
+        return value;
     }
 
     public String popString(String argName, String def) throws InvalidCommandArgumentException {
-        try {
-            return popString(argName);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
+        String value = tryPopString(argName, def);
+        throwIfFailed();
+        return value;
+    }
+
+    /**
+     * Non-throwing version of {@link #popString(String, String)}. If the argument is invalid, {@code def} is returned and {@link #getLastOutcome()} is {@link ParseOutcome#INVALID}.
+     */
+    public String tryPopString(String argName, String def) {
+        String value = parseString(argName);
+        return failed() ? orDefault(def) : value;
+    }
+
+    private String parseString(String argName) {
+        String arg = tryCurrentArgument(argName, false, true);
+        if (failed()) {
+            return null;
         }
+        return success(argName, arg);
     }
 
     public int popInteger(String argName) throws InvalidCommandArgumentException {
-        String arg = currentArgument(argName);
-        try {
-            return success(argName, Integer.parseInt(arg));
-        } catch (NumberFormatException e) {
-            throw failure(argName, "Input '" + arg + "' is not an integer you silly!", false);
-        }
+        int value = parseInteger(argName);
+        throwIfFailed();
+        return value;
     }
 
     public int popInteger(String argName, int def) throws InvalidCommandArgumentException {
-        try {
-            return popInteger(argName);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
+        int value = tryPopInteger(argName, def);
+        throwIfFailed();
+        return value;
+    }
+
+    /**
+     * Non-throwing version of {@link #popInteger(String, int)}. If the argument is invalid, {@code def} is returned and {@link #getLastOutcome()} is {@link ParseOutcome#INVALID}.
+     */
+    public int tryPopInteger(String argName, int def) {
+        int value = parseInteger(argName);
+        return failed() ? orDefault(def) : value;
+    }
+
+    private int parseInteger(String argName) {
+        String arg = tryCurrentArgument(argName, false, true);
+        if (failed()) {
+            return 0;
+        }
+        long value = NumberParser.parseInt(arg);
+        if (value == NumberParser.NOT_AN_INT) {
+            fail(argName, "Input '" + arg + "' is not an integer you silly!", false);
+            return 0;
         }
+        return successInt(argName, (int) value, false);
     }
 
     public float popFloat(String argName) throws InvalidCommandArgumentException {
-        String arg = currentArgument(argName);
-        try {
-            return success(argName, Float.parseFloat(arg));
-        } catch (NumberFormatException e) {
-            throw failure(argName, "Input '" + arg + "' is not a float you silly!", false);
-        }
+        float value = parseFloat(argName);
+        throwIfFailed();
+        return value;
     }
 
     public float popFloat(String argName, float def) throws InvalidCommandArgumentException {
-        try {
-            return popFloat(argName);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
+        float value = tryPopFloat(argName, def);
+        throwIfFailed();
+        return value;
+    }
+
+    /**
+     * Non-throwing version of {@link #popFloat(String, float)}. If the argument is invalid, {@code def} is returned and {@link #getLastOutcome()} is {@link ParseOutcome#INVALID}.
+     */
+    public float tryPopFloat(String argName, float def) {
+        float value = parseFloat(argName);
+        return failed() ? orDefault(def) : value;
+    }
+
+    private float parseFloat(String argName) {
+        String arg = tryCurrentArgument(argName, false, true);
+        if (failed()) {
+            return 0;
+        }
+        if (!NumberParser.isFloatingPoint(arg)) {
+            fail(argName, "Input '" + arg + "' is not a float you silly!", false);
+            return 0;
         }
+        return successFloat(argName, Float.parseFloat(arg), false);
     }
 
     public double popDouble(String argName) throws InvalidCommandArgumentException {
-        String arg = currentArgument(argName);
-        try {
-            return success(argName, Double.parseDouble(arg));
-        } catch (NumberFormatException e) {
-            throw failure(argName, "Input '" + arg + "' is not a double you silly!", false);
-        }
+        double value = parseDouble(argName);
+        throwIfFailed();
+        return value;
     }
 
     public double popDouble(String argName, double def) throws InvalidCommandArgumentException {
-        try {
-            return popDouble(argName);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
+        double value = tryPopDouble(argName, def);
+        throwIfFailed();
+        return value;
+    }
+
+    /**
+     * Non-throwing version of {@link #popDouble(String, double)}. If the argument is invalid, {@code def} is returned and {@link #getLastOutcome()} is {@link ParseOutcome#INVALID}.
+     */
+    public double tryPopDouble(String argName, double def) {
+        double value = parseDouble(argName);
+        return failed() ? orDefault(def) : value;
+    }
+
+    private double parseDouble(String argName) {
+        String arg = tryCurrentArgument(argName, false, true);
+        if (failed()) {
+            return 0;
+        }
+        if (!NumberParser.isFloatingPoint(arg)) {
+            fail(argName, "Input '" + arg + "' is not a double you silly!", false);
+            return 0;
         }
+        return successDouble(argName, Double.parseDouble(arg), false);
     }
 
     public boolean popBoolean(String argName) throws InvalidCommandArgumentException {
-        String str = currentArgument(argName);
-        if (!str.equalsIgnoreCase("true") && !str.equalsIgnoreCase("false")) {
-            throw failure(argName, "Value '" + str + "' is not a boolean you silly!", false);
-        }
-        return success(argName, Boolean.parseBoolean(str));
+        boolean value = parseBoolean(argName);
+        throwIfFailed();
+        return value;
     }
 
     public boolean popBoolean(String argName, boolean def) throws InvalidCommandArgumentException {
-        try {
-            return popBoolean(argName);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
+        boolean value = tryPopBoolean(argName, def);
+        throwIfFailed();
+        return value;
+    }
+
+    /**
+     * Non-throwing version of {@link #popBoolean(String, boolean)}. If the argument is invalid, {@code def} is returned and {@link #getLastOutcome()} is {@link ParseOutcome#INVALID}.
+     */
+    public boolean tryPopBoolean(String argName, boolean def) {
+        boolean value = parseBoolean(argName);
+        return failed() ? orDefault(def) : value;
+    }
+
+    private boolean parseBoolean(String argName) {
+        String str = tryCurrentArgument(argName, false, true);
+        if (failed()) {
+            return false;
         }
+        if (!str.equalsIgnoreCase("true") && !str.equalsIgnoreCase("false")) {
+            fail(argName, "Value '" + str + "' is not a boolean you silly!", false);
+            return false;
+        }
+        return successBoolean(argName, Boolean.parseBoolean(str), false);
     }
 
     public String popSubCommand() throws InvalidCommandArgumentException {
-        return popString(SUBCOMMAND_ARGNAME + this.depth++);
+        return popString(ArgumentKeys.subCommand(this.depth++));
+    }
+
+    /**
+     * Non-throwing version of {@link #popSubCommand()}.
+     *
+     * @return the name of the subcommand, or {@code null} if there is none, in which case {@link #getLastOutcome()} tells why
+     */
+    public String tryPopSubCommand() {
+        return parseString(ArgumentKeys.subCommand(this.depth++));
     }
 
     public CommandFlags popFlags(String argName, CommandFlags flags) throws InvalidCommandArgumentException {
@@ -723,37 +1187,120 @@ public class CommandArguments {
      * @throws InvalidCommandArgumentException if not enough coordinates are provided or the coordinates are not floats
      */
     public RelativeVector3f popRelativeVector3(String argName, Vector3f refPoint) throws InvalidCommandArgumentException {
-        try {
-            String[] els;
-            if (currentArgument(argName).contains(",")) {
-                els = currentArgument(argName).split(",");
-                if (els.length < 3) {
-                    throw failure(argName, "Must provide 3 coordinates", false);
-                }
+        RelativeVector3f value = parseRelativeVector3(argName, refPoint);
+        throwIfFailed();
+        return value;
+    }
+
+    private RelativeVector3f parseRelativeVector3(String argName, Vector3f refPoint) {
+        String current = tryCurrentArgument(argName, false, true);
+        if (failed()) {
+            return null;
+        }
+        int firstComma = current.indexOf(',');
+        if (firstComma >= 0) {
+            int secondComma = current.indexOf(',', firstComma + 1);
+            if (secondComma < 0 || !hasNonComma(current, secondComma + 1)) {
+                fail(argName, "Must provide 3 coordinates", false);
+                return null;
+            }
+            int thirdComma = current.indexOf(',', secondComma + 1);
+            int end = thirdComma < 0 ? current.length() : thirdComma;
+            if (!isCoordinate(argName, current, 0, firstComma) || !isCoordinate(argName, current, firstComma + 1, secondComma) || !isCoordinate(argName, current, secondComma + 1, end)) {
+                return null;
+            }
+            return success(argName, new RelativeVector3f(parseCoordinate(current, 0, firstComma), parseCoordinate(current, firstComma + 1, secondComma), parseCoordinate(current, secondComma + 1, end),
+                    refPoint, isRelative(current, 0), isRelative(current, firstComma + 1), isRelative(current, secondComma + 1)));
+        }
+        // Three arguments: look at all of them before consuming any, so that a failure leaves the index where it was
+        int start = this.index;
+        String y = null, z = null;
+        for (int i = 1; i < 3; ++i) {
+            this.index = start + i;
+            String el = tryCurrentArgument(null, false, true);
+            if (failed()) {
+                this.index = start;
+                fail(argName, this.failureReason, this.outcome == ParseOutcome.MISSING);
+                return null;
+            }
+            if (i == 1) {
+                y = el;
             } else {
-                els = new String[3];
-                els[0] = popString(null);
-                els[1] = popString(null);
-                els[2] = popString(null);
+                z = el;
             }
-            @SuppressWarnings("unchecked")
-            Pair<Float, Boolean>[] pairs = new Pair[3];
-            for (int i = 0; i < 3; ++i) {
-                try {
-                    pairs[i] = parseRelativeFloat(els[i]);
-                } catch (NumberFormatException e) {
-                    throw failure(argName, "Input '" + els[i] + "' is not a coordinate you silly!", false);
-                }
+        }
+        this.index = start;
+        if (!isCoordinate(argName, current, 0, current.length()) || !isCoordinate(argName, y, 0, y.length()) || !isCoordinate(argName, z, 0, z.length())) {
+            return null;
+        }
+        RelativeVector3f value = new RelativeVector3f(parseCoordinate(current, 0, current.length()), parseCoordinate(y, 0, y.length()), parseCoordinate(z, 0, z.length()),
+                refPoint, isRelative(current, 0), isRelative(y, 0), isRelative(z, 0));
+        recordSuccess(null, false);
+        recordSuccess(null, false);
+        return success(argName, value);
+    }
+
+    private static boolean hasNonComma(String input, int from) {
+        for (int i = from; i < input.length(); ++i) {
+            if (input.charAt(i) != ',') {
+                return true;
             }
-            Vector3f raw = new Vector3f(pairs[0].getLeft(), pairs[1].getLeft(), pairs[2].getLeft());
-            return success(argName, new RelativeVector3f(raw, refPoint, pairs[0].getRight(), pairs[1].getRight(), pairs[2].getRight()));
-        } catch (InvalidCommandArgumentException e) {
-            throw failure(argName, e.getReason(), e.isSilenceable());
         }
+        return false;
+    }
+
+    private static boolean isRelative(String input, int start) {
+        return input.startsWith(RELATIVE_COORD_PREFIX, start);
+    }
+
+    /**
+     * Checks a coordinate in {@code input} from {@code start} to {@code end}: an optional {@link #RELATIVE_COORD_PREFIX} followed by an optional float.
+     * Records the failure if it isn't one.
+     */
+    private boolean isCoordinate(String argName, String input, int start, int end) {
+        int number = isRelative(input, start) ? start + RELATIVE_COORD_PREFIX.length() : start;
+        if (number < end && !NumberParser.isFloatingPoint(input, number, end)) {
+            fail(argName, "Input '" + input.substring(start, end) + "' is not a coordinate you silly!", false);
+            return false;
+        }
+        return true;
+    }
+
+    private static float parseCoordinate(String input, int start, int end) {
+        if (isRelative(input, start)) {
+            start += RELATIVE_COORD_PREFIX.length();
+        }
+        float x = 0;
+        if (start < end) {
+            x += NumberParser.parseFloat(input, start, end);
+        }
+        return x;
+    }
+
+    /**
+     * Pops {@code out.length} vectors, as accepted by {@link #popRelativeVector3(String, Vector3f)}, for commands which take several positions.
+     * The vectors are named {@code argName + ":" + i}.
+     *
+     * @param argName The name of the arguments
+     * @param refPoint The point relative coordinates are relative to
+     * @param out The array the vectors are stored in, which may be reused between calls
+     * @return {@code out}
+     * @throws InvalidCommandArgumentException if any of the vectors is missing or invalid
+     */
+    public RelativeVector3f[] popRelativeVector3s(String argName, Vector3f refPoint, RelativeVector3f[] out) throws InvalidCommandArgumentException {
+        for (int i = 0; i < out.length; ++i) {
+            out[i] = parseRelativeVector3(ArgumentKeys.indexed(argName, i), refPoint);
+            throwIfFailed();
+        }
+        return out;
     }
 
     public static final String RELATIVE_COORD_PREFIX = "~";
 
+    /**
+     * @deprecated Coordinates are now parsed in place; this is no longer called by {@link #popRelativeVector3(String, Vector3f)}.
+     */
+    @Deprecated
     protected Pair<Float, Boolean> parseRelativeFloat(String input) throws NumberFormatException {
         float x = 0;
         boolean rel = false;
@@ -768,11 +1315,7 @@ public class CommandArguments {
     }
 
     public RelativeVector3f popVector3(String argName, RelativeVector3f def) throws InvalidCommandArgumentException {
-        try {
-            return popVector3(argName);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
-        }
+        return popRelativeVector3(argName, Vector3f.ZERO, def);
     }
 
     public RelativeVector3f popVector3(String argName, Vector3f def) throws InvalidCommandArgumentException {
@@ -780,38 +1323,22 @@ public class CommandArguments {
     }
 
     public RelativeVector3f popRelativeVector3(String argName, Vector3f refPoint, RelativeVector3f def) throws InvalidCommandArgumentException {
-        try {
-            return popRelativeVector3(argName, refPoint);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
-        }
+        RelativeVector3f value = tryPopRelativeVector3(argName, refPoint, def);
+        throwIfFailed();
+        return value;
     }
 
-    private static final int MAX_ARG_FULLPRINT = 5;
-
-    private static String buildEnumError(Class<? extends Enum<?>> enumClass) {
-        Enum<?>[] constants = enumClass.getEnumConstants();
-        String itemList;
-        if (constants.length > MAX_ARG_FULLPRINT) {
-            itemList = "an element of " + enumClass.getSimpleName();
-        } else {
-            boolean first = true;
-            StringBuilder build = new StringBuilder();
-            for (Enum<?> e : constants) {
-                if (!first) {
-                    build.append(", ");
-                }
-                build.append("'").append(e.name()).append("'");
-                first = false;
-            }
-            itemList = build.toString();
-        }
-        return "Invalid " + enumClass.getSimpleName() + "; Must be 0-" + constants.length + " or " + itemList + ".";
+    /**
+     * Non-throwing version of {@link #popRelativeVector3(String, Vector3f, RelativeVector3f)}. If the argument is invalid, {@code def} is returned and {@link #getLastOutcome()} is {@link ParseOutcome#INVALID}.
+     */
+    public RelativeVector3f tryPopRelativeVector3(String argName, Vector3f refPoint, RelativeVector3f def) {
+        RelativeVector3f value = parseRelativeVector3(argName, refPoint);
+        return failed() ? orDefault(def) : value;
     }
 
     /**
      * Pop an enum value from the arguments list.
-     * Values are checked by index and by uppercased name.
+     * Values are checked by index and by name, ignoring case.
      *
      * @param argName The name of the argument
      * @param enumClass The enum class to
@@ -820,35 +1347,54 @@ public class CommandArguments {
      * @throws InvalidCommandArgumentException if no argument is present or an unknown element is chosen.
      */
     public <T extends Enum<T>> T popEnumValue(String argName, Class<T> enumClass) throws InvalidCommandArgumentException {
-        String key = currentArgument(argName);
-        T[] constants = enumClass.getEnumConstants();
-        T value;
-        try {
-            int index = Integer.parseInt(key);
-            if (index < 0 || index >= constants.length) {
-                throw failure(argName, buildEnumError(enumClass), false);
-            }
-            value = constants[index];
-        } catch (NumberFormatException e) {
-            try {
-                value = Enum.valueOf(enumClass, key.toUpperCase());
-            } catch (IllegalArgumentException e2) {
-                throw failure(argName, buildEnumError(enumClass), false);
-            }
+        T value = parseEnumValue(argName, enumClass);
+        throwIfFailed();
+        return value;
+    }
+
+    private <T extends Enum<T>> T parseEnumValue(String argName, Class<T> enumClass) {
+        String key = tryCurrentArgument(argName, false, true);
+        if (failed()) {
+            return null;
+        }
+        EnumLookup<T> lookup = EnumLookup.of(enumClass);
+        long index = NumberParser.parseInt(key);
+        T value = index == NumberParser.NOT_AN_INT ? lookup.find(key) : lookup.get(index);
+        if (value == null) {
+            fail(argName, lookup.getErrorMessage(), false);
+            return null;
         }
         return success(argName, value);
+    }
 
+    /**
+     * Completes the name of a constant of {@code enumClass}, as accepted by {@link #popEnumValue(String, Class)}.
+     *
+     * @param argName The name of the argument
+     * @param cursor The position to complete at
+     * @param enumClass The enum class
+     * @param candidates The list the candidates are added to
+     * @return the position the candidates start at, or {@code -1} if there are none
+     */
+    public <T extends Enum<T>> int completeEnumValue(String argName, int cursor, Class<T> enumClass, List<String> candidates) {
+        return complete(argName, offsetToArgument(cursor), EnumLookup.of(enumClass).getCompletionNames(), 0, true, candidates);
     }
 
     /**
      * @see #popEnumValue(String, Class) non-defaulted version
      */
     public <T extends Enum<T>> T popEnumValue(String argName, Class<T> enumClass, T def) throws InvalidCommandArgumentException {
-        try {
-            return popEnumValue(argName, enumClass);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
-        }
+        T value = tryPopEnumValue(argName, enumClass, def);
+        throwIfFailed();
+        return value;
+    }
+
+    /**
+     * Non-throwing version of {@link #popEnumValue(String, Class, Enum)}. If the argument is invalid, {@code def} is returned and {@link #getLastOutcome()} is {@link ParseOutcome#INVALID}.
+     */
+    public <T extends Enum<T>> T tryPopEnumValue(String argName, Class<T> enumClass, T def) {
+        T value = parseEnumValue(argName, enumClass);
+        return failed() ? orDefault(def) : value;
     }
 
     /**
@@ -857,31 +1403,43 @@ public class CommandArguments {
      * @return string from specified arg on
      */
     public String popRemainingStrings(String argName) throws InvalidCommandArgumentException {
+        String value = parseRemainingStrings(argName);
+        throwIfFailed();
+        return value;
+    }
+
+    public String popRemainingStrings(String argName, String def) throws InvalidCommandArgumentException {
+        String value = tryPopRemainingStrings(argName, def);
+        throwIfFailed();
+        return value;
+    }
+
+    /**
+     * Non-throwing version of {@link #popRemainingStrings(String, String)}.
+     */
+    public String tryPopRemainingStrings(String argName, String def) {
+        String value = parseRemainingStrings(argName);
+        return failed() ? orDefault(def) : value;
+    }
+
+    private String parseRemainingStrings(String argName) {
         if (hasOverride(argName)) {
-            return success(argName, currentArgument(argName));
+            return parseString(argName);
         }
         if (!hasMore()) {
-            throw failure(argName, "No arguments present", true);
+            fail(argName, "No arguments present", true);
+            return null;
         }
         StringBuilder builder = new StringBuilder();
-        while (hasMore()) {
-            popRemainingStringSegment(argName, builder, true, false);
-        }
-        String ret = builder.toString();
         try {
+            while (hasMore()) {
+                popRemainingStringSegment(argName, builder, true, false);
+            }
             assertCompletelyParsed(); // If not, there's a bug
         } catch (InvalidCommandArgumentException e) {
             throw new IllegalStateException("Doesn't have more but still not completely parsed.", e); // If it's a bug, don't blame the user - don't throw a UserFriendlyCommandException
         }
-        return success(argName, ret);
-    }
-
-    public String popRemainingStrings(String argName, String def) throws InvalidCommandArgumentException {
-        try {
-            return popRemainingStrings(argName);
-        } catch (InvalidCommandArgumentException e) {
-            return potentialDefault(e, def);
-        }
+        return success(argName, builder.toString());
     }
 
     public int completeRemainingStrings(String argName, int cursor, SortedSet<String> potentialCandidates, List<String> candidates) {
@@ -940,6 +1498,12 @@ public class CommandArguments {
 
     public <T> T get(String key, Class<T> type, T def) {
         Object o = this.parsedArgs.get(key);
+        if (o == null) {
+            int slot = this.primitiveArgs.find(key);
+            if (slot >= 0) {
+                o = this.primitiveArgs.box(slot);
+            }
+        }
 
         if (o == null) {
             return def;
@@ -950,7 +1514,7 @@ public class CommandArguments {
     }
 
     public boolean has(String key) {
-        return this.parsedArgs.containsKey(key);
+        return this.parsedArgs.containsKey(key) || this.primitiveArgs.find(key) >= 0;
     }
 
     public boolean hasOverride(String key) {
@@ -970,6 +1534,10 @@ public class CommandArguments {
     }
 
     public int getInteger(String key, int def) {
+        int slot = findPrimitive(key, PrimitiveSlots.INT, Integer.class);
+        if (slot >= 0) {
+            return (int) this.primitiveArgs.getBits(slot);
+        }
         Integer i = get(key, Integer.class);
         if (i == null) {
             return def;
@@ -978,6 +1546,10 @@ public class CommandArguments {
     }
 
     public float getFloat(String key, float def) {
+        int slot = findPrimitive(key, PrimitiveSlots.FLOAT, Float.class);
+        if (slot >= 0) {
+            return Float.intBitsToFloat((int) this.primitiveArgs.getBits(slot));
+        }
         Float f = get(key, Float.class);
         if (f == null) {
             return def;
@@ -985,6 +1557,41 @@ public class CommandArguments {
         return f;
     }
 
+    public double getDouble(String key, double def) {
+        int slot = findPrimitive(key, PrimitiveSlots.DOUBLE, Double.class);
+        if (slot >= 0) {
+            return Double.longBitsToDouble(this.primitiveArgs.getBits(slot));
+        }
+        Double d = get(key, Double.class);
+        if (d == null) {
+            return def;
+        }
+        return d;
+    }
+
+    public boolean getBoolean(String key, boolean def) {
+        int slot = findPrimitive(key, PrimitiveSlots.BOOLEAN, Boolean.class);
+        if (slot >= 0) {
+            return this.primitiveArgs.getBits(slot) != 0;
+        }
+        Boolean b = get(key, Boolean.class);
+        if (b == null) {
+            return def;
+        }
+        return b;
+    }
+
+    /**
+     * @return the slot of {@code key} if it holds a primitive of {@code type}, or {@code -1} if the value isn't stored as a primitive
+     */
+    private int findPrimitive(String key, byte type, Class<?> boxedType) {
+        int slot = this.primitiveArgs.find(key);
+        if (slot >= 0 && this.primitiveArgs.getType(slot) != type) {
+            throw new RuntimeException("Incorrect argument type " + boxedType.getName() + " for argument " + key);
+        }
+        return slot;
+    }
+
     public CommandFlags getFlags(String key) {
         return get(key, CommandFlags.class);
     }
@@ -0,0 +1,141 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+import com.google.common.collect.MapMaker;
+
+import com.flowpowered.commands.syntax.Syntax;
+
+/**
+ * A bounded pool of {@link CommandArguments}, so that parsing many command lines reuses the same instances and their buffers instead of creating new ones each time.
+ * <p>
+ * Arguments are {@link CommandArguments#reset(String, Syntax) reset} when they're acquired, and their state is dropped when they're released,
+ * so nothing of one command line can be seen while processing another. Released arguments must not be used anymore by whoever released them.
+ * <p>
+ * A pool may be shared by several threads, e.g. one per {@link CommandDispatcher}, or kept per thread with {@link #forCurrentThread()}.
+ */
+public class CommandArgumentsPool {
+    public static final int DEFAULT_CAPACITY = 16;
+    private static final ThreadLocal<CommandArgumentsPool> THREAD_POOLS = new ThreadLocal<CommandArgumentsPool>() {
+        @Override
+        protected CommandArgumentsPool initialValue() {
+            return new CommandArgumentsPool(DEFAULT_CAPACITY);
+        }
+    };
+    private final Deque<CommandArguments> free = new ArrayDeque<>();
+    // The arguments handed out and not released yet, by identity; weak so that arguments which are never released can still be collected
+    private final Set<CommandArguments> acquired = Collections.newSetFromMap(new MapMaker().weakKeys().<CommandArguments, Boolean>makeMap());
+    private final int capacity;
+    private final Logger logger;
+
+    public CommandArgumentsPool(int capacity) {
+        this(capacity, CommandArguments.DEFAULT_LOGGER);
+    }
+
+    /**
+     * @param capacity the maximum number of released arguments kept for reuse
+     * @param logger the logger of the arguments created by this pool
+     */
+    public CommandArgumentsPool(int capacity, Logger logger) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity! Must be positive!");
+        }
+        this.capacity = capacity;
+        this.logger = logger;
+    }
+
+    /**
+     * @return the pool of the current thread
+     */
+    public static CommandArgumentsPool forCurrentThread() {
+        return THREAD_POOLS.get();
+    }
+
+    /**
+     * Gets arguments parsed from {@code commandLine}, reusing released ones if there are any.
+     *
+     * @param commandLine the command line to parse
+     * @param syntax the syntax of the command line
+     * @return the arguments, which should be {@link #release(CommandArguments) released} once they're no longer used
+     */
+    public CommandArguments acquire(String commandLine, Syntax syntax) {
+        CommandArguments args;
+        synchronized (this) {
+            args = free.pollFirst();
+        }
+        if (args == null) {
+            args = new CommandArguments(commandLine, syntax, logger);
+        } else {
+            args.reset(commandLine, syntax);
+        }
+        synchronized (this) {
+            acquired.add(args);
+        }
+        return args;
+    }
+
+    /**
+     * Returns {@code args} to this pool. Its state is dropped right away; if the pool is full, it is left for the garbage collector.
+     * Subclasses of {@link CommandArguments} are never pooled, as they may carry state which {@link CommandArguments#reset(String, Syntax)} doesn't know about.
+     * <p>
+     * Arguments which weren't {@link #acquire(String, Syntax) acquired} from this pool, or were released since, are ignored and left untouched,
+     * so releasing twice never hands the same arguments out twice.
+     *
+     * @param args the arguments to release, which must not be used afterwards
+     */
+    public void release(CommandArguments args) {
+        if (args == null || args.getClass() != CommandArguments.class) {
+            return;
+        }
+        synchronized (this) {
+            if (!acquired.remove(args)) {
+                return;
+            }
+        }
+        args.clearState();
+        synchronized (this) {
+            if (free.size() < capacity) {
+                free.addFirst(args);
+            }
+        }
+    }
+
+    /**
+     * @return the number of released arguments waiting to be reused
+     */
+    public synchronized int size() {
+        return free.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
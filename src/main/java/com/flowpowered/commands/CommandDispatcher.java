@@ -0,0 +1,305 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import com.flowpowered.commands.exception.CommandQueueFullException;
+import com.flowpowered.commands.syntax.Syntax;
+
+/**
+ * Dispatches commands to a {@link CommandManager} through a mailbox per {@link CommandSender}.
+ * The commands of a sender are executed one after another, in the order they were dispatched, while the commands of different senders run in parallel on the executor.
+ * <p>
+ * Mailboxes are bounded. When a sender's mailbox is full, the {@link OverflowPolicy} decides whether the command is rejected or the dispatching thread waits for room.
+ * Mailboxes only exist while a sender has commands in flight.
+ */
+public class CommandDispatcher {
+    // Stands in for the null sender, which can't be a key of the map
+    private static final Object NULL_SENDER = new Object();
+    private final CommandManager manager;
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final ConcurrentMap<Object, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger totalDepth = new AtomicInteger();
+    private final CommandArgumentsPool pool = new CommandArgumentsPool(CommandArgumentsPool.DEFAULT_CAPACITY);
+
+    /**
+     * What to do with a command dispatched to a full mailbox.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Fail the command with a {@link CommandQueueFullException}.
+         */
+        REJECT,
+        /**
+         * Block the dispatching thread until there's room in the mailbox. If the thread is interrupted while waiting, the command is rejected.
+         */
+        DELAY
+    }
+
+    /**
+     * @param manager the manager to execute the commands with
+     * @param executor the executor to run the commands on, usually a thread pool shared by all senders
+     * @param capacity the maximum number of commands waiting in the mailbox of each sender, not counting the one being executed
+     * @param policy what to do when a mailbox is full
+     */
+    public CommandDispatcher(CommandManager manager, Executor executor, int capacity, OverflowPolicy policy) {
+        if (manager == null || executor == null || policy == null) {
+            throw new IllegalArgumentException("Invalid arguments! Must not be null!");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity! Must be positive!");
+        }
+        this.manager = manager;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Queues a command for execution after all the commands previously dispatched for the same sender.
+     *
+     * @param sender the sender of the command
+     * @param args the arguments of the command
+     * @return a future which completes once the command execution is done, or fails with the {@link CommandException} which occurred,
+     *         including a {@link CommandQueueFullException} if the command was rejected
+     */
+    public ListenableFuture<Void> dispatch(CommandSender sender, CommandArguments args) {
+        return dispatch(sender, new Envelope(args, false));
+    }
+
+    /**
+     * Parses {@code commandLine} and queues it like {@link #dispatch(CommandSender, CommandArguments)}.
+     * The arguments are taken from a pool owned by this dispatcher and returned to it once the command execution is done,
+     * so {@link AsyncCommandExecutor}s must not keep them after their future completes.
+     *
+     * @param sender the sender of the command
+     * @param commandLine the command line
+     * @param syntax the syntax of the command line
+     * @return a future which completes once the command execution is done, or fails with the {@link CommandException} which occurred,
+     *         including a {@link CommandQueueFullException} if the command was rejected
+     */
+    public ListenableFuture<Void> dispatch(CommandSender sender, String commandLine, Syntax syntax) {
+        return dispatch(sender, new Envelope(pool.acquire(commandLine, syntax), true));
+    }
+
+    private ListenableFuture<Void> dispatch(CommandSender sender, Envelope envelope) {
+        Object key = sender == null ? NULL_SENDER : sender;
+        while (true) {
+            Mailbox mailbox = mailboxes.get(key);
+            if (mailbox == null) {
+                Mailbox created = new Mailbox(key, sender);
+                mailbox = mailboxes.putIfAbsent(key, created);
+                if (mailbox == null) {
+                    mailbox = created;
+                }
+            }
+            int offered = mailbox.offer(envelope);
+            if (offered == Mailbox.RETIRED) {
+                continue; // The mailbox went idle and was removed just now, use a new one
+            }
+            if (offered == Mailbox.REJECTED) {
+                envelope.done();
+                envelope.future.setException(new CommandQueueFullException("You have too many commands waiting to be executed!", capacity));
+            } else if (offered == Mailbox.QUEUED_IDLE) {
+                mailbox.runNext();
+            }
+            return envelope.future;
+        }
+    }
+
+    /**
+     * @param sender the sender
+     * @return the number of commands of {@code sender} waiting to be executed, not counting the one being executed
+     */
+    public int getQueueDepth(CommandSender sender) {
+        Mailbox mailbox = mailboxes.get(sender == null ? NULL_SENDER : sender);
+        return mailbox == null ? 0 : mailbox.depth();
+    }
+
+    /**
+     * @return the number of commands of all senders waiting to be executed
+     */
+    public int getTotalQueueDepth() {
+        return totalDepth.get();
+    }
+
+    /**
+     * @return the number of senders with commands being executed or waiting
+     */
+    public int getActiveSenders() {
+        return mailboxes.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public CommandManager getManager() {
+        return manager;
+    }
+
+    private final class Envelope {
+        private final CommandArguments args;
+        private final boolean pooled;
+        private final SettableFuture<Void> future = SettableFuture.create();
+
+        private Envelope(CommandArguments args, boolean pooled) {
+            this.args = args;
+            this.pooled = pooled;
+        }
+
+        /**
+         * Called once the command is no longer used, before its future completes.
+         */
+        private void done() {
+            if (pooled) {
+                pool.release(args);
+            }
+        }
+    }
+
+    private final class Mailbox {
+        private static final int QUEUED = 0;
+        private static final int QUEUED_IDLE = 1;
+        private static final int REJECTED = 2;
+        private static final int RETIRED = 3;
+        private final Object key;
+        private final CommandSender sender;
+        private final Queue<Envelope> queue = new ArrayDeque<>();
+        private boolean running = false;
+        private boolean retired = false;
+
+        private Mailbox(Object key, CommandSender sender) {
+            this.key = key;
+            this.sender = sender;
+        }
+
+        /**
+         * @return {@link #QUEUED_IDLE} if the envelope was queued and the caller has to start the mailbox, {@link #QUEUED} if it was queued behind a running command,
+         *         {@link #REJECTED} if the mailbox is full, or {@link #RETIRED} if the mailbox was removed and the caller has to use a new one
+         */
+        private synchronized int offer(Envelope envelope) {
+            while (true) {
+                if (retired) {
+                    return RETIRED;
+                }
+                if (queue.size() < capacity) {
+                    break;
+                }
+                if (policy == OverflowPolicy.REJECT) {
+                    return REJECTED;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return REJECTED;
+                }
+            }
+            queue.add(envelope);
+            totalDepth.incrementAndGet();
+            if (running) {
+                return QUEUED;
+            }
+            running = true;
+            return QUEUED_IDLE;
+        }
+
+        private synchronized int depth() {
+            return queue.size();
+        }
+
+        /**
+         * Runs the queued commands until one doesn't complete right away, or retires the mailbox if there are none left. Must only be called by whoever set
+         * {@link #running}, or by the command finishing.
+         * <p>
+         * Commands which complete while they're started are handled in the loop, so fast commands don't drain the mailbox recursively.
+         */
+        private void runNext() {
+            while (true) {
+                final Envelope next;
+                synchronized (this) {
+                    next = queue.poll();
+                    if (next == null) {
+                        running = false;
+                        retired = true;
+                        mailboxes.remove(key, this);
+                        return;
+                    }
+                    totalDepth.decrementAndGet();
+                    notifyAll(); // Wake up the dispatchers waiting for room
+                }
+                ListenableFuture<Void> pending = manager.executeCommandAsync(sender, next.args, executor);
+                if (!pending.isDone()) {
+                    Futures.addCallback(pending, new FutureCallback<Void>() {
+                        @Override
+                        public void onSuccess(Void result) {
+                            next.done();
+                            next.future.set(null);
+                            runNext();
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            next.done();
+                            next.future.setException(t);
+                            runNext();
+                        }
+                    }, MoreExecutors.directExecutor());
+                    return;
+                }
+                next.done();
+                try {
+                    Uninterruptibles.getUninterruptibly(pending);
+                    next.future.set(null);
+                } catch (ExecutionException e) {
+                    next.future.setException(e.getCause());
+                } catch (CancellationException e) {
+                    next.future.setException(e);
+                }
+            }
+        }
+    }
+}
@@ -29,14 +29,44 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
-import com.flowpowered.commands.syntax.RegexSyntax;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import com.flowpowered.commands.filter.FilterRegistry;
+import com.flowpowered.commands.syntax.StateMachineSyntax;
+import com.flowpowered.commands.syntax.Syntax;
+import com.flowpowered.commands.util.ThreadPerTaskExecutor;
 
 public class CommandManager {
+    // Stands in for the null sender, which can't be a key of the map
+    private static final Object NULL_SENDER = new Object();
+    // Lookups fold ASCII letters on the fly, unless a subclass overrides normalizeChildName, which then normalizes every looked up name.
+    private static final ClassValue<Boolean> OVERRIDES_NORMALIZE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("normalizeChildName", String.class).getDeclaringClass() != CommandManager.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+    };
     private ConcurrentMap<String, Command> allCommands = new ConcurrentHashMap<>();
     private ConcurrentMap<String, ConcurrentMap<String, Command>> commandsByProvider = new ConcurrentHashMap<>();
     private Command rootCommand;
     private final boolean caseSensitive;
+    private volatile Executor asyncExecutor = MoreExecutors.directExecutor();
+    private volatile boolean orderedPerSender = false;
+    private volatile CompletionCache completionCache = null;
+    private final AtomicLong revision = new AtomicLong();
+    private final FilterRegistry filterRegistry = new FilterRegistry();
+    private final ConcurrentMap<Object, ListenableFuture<Void>> senderTails = new ConcurrentHashMap<>();
 
     public CommandManager() {
         this(true);
@@ -162,17 +192,218 @@ public class CommandManager {
 
     @Deprecated
     public void executeCommand(CommandSender sender, String commandString) throws CommandException {
-        executeCommand(sender, new CommandArguments(commandString, RegexSyntax.SPOUT_SYNTAX));
+        executeCommand(sender, new CommandArguments(commandString, StateMachineSyntax.SPOUT_SYNTAX));
     }
 
     public void executeCommand(CommandSender sender, CommandArguments args) throws CommandException {
         rootCommand.execute(sender, args);
     }
 
+    /**
+     * Executes a command without throwing for failures caused by the input, such as unknown subcommands or missing permissions.
+     *
+     * @param sender the sender of the command
+     * @param args the arguments of the command
+     * @return the result of the execution
+     */
+    public CommandResult tryExecuteCommand(CommandSender sender, CommandArguments args) {
+        return rootCommand.tryExecute(sender, args);
+    }
+
+    /**
+     * @return the executor used by {@link #executeCommandAsync(CommandSender, CommandArguments)}
+     */
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Sets the executor used by {@link #executeCommandAsync(CommandSender, CommandArguments)}.
+     * By default commands are processed on the calling thread, and only {@link AsyncCommandExecutor}s leave it.
+     *
+     * @param asyncExecutor the executor to process commands on
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        if (asyncExecutor == null) {
+            throw new IllegalArgumentException("Invalid executor! Must not be null!");
+        }
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Executes a command on the {@link #getAsyncExecutor() async executor}.
+     *
+     * @param sender the sender of the command
+     * @param args the arguments of the command
+     * @return a future which completes once the command execution is done, or fails with the {@link CommandException} which occurred
+     * @see Command#executeAsync(CommandSender, CommandArguments, Executor)
+     */
+    public ListenableFuture<Void> executeCommandAsync(CommandSender sender, CommandArguments args) {
+        if (orderedPerSender) {
+            return executeCommandInOrder(sender, args, asyncExecutor);
+        }
+        return executeCommandAsync(sender, args, asyncExecutor);
+    }
+
+    /**
+     * Executes a command on {@code executor}.
+     *
+     * @param sender the sender of the command
+     * @param args the arguments of the command
+     * @param executor the executor to process the command on
+     * @return a future which completes once the command execution is done, or fails with the {@link CommandException} which occurred
+     * @see Command#executeAsync(CommandSender, CommandArguments, Executor)
+     */
+    public ListenableFuture<Void> executeCommandAsync(CommandSender sender, CommandArguments args, Executor executor) {
+        return rootCommand.executeAsync(sender, args, executor);
+    }
+
+    /**
+     * Executes a command on {@code executor} once all the commands previously passed to this method for the same sender are done.
+     * Commands of different senders don't wait for each other.
+     *
+     * @param sender the sender of the command
+     * @param args the arguments of the command
+     * @param executor the executor to process the command on
+     * @return a future which completes once the command execution is done, or fails with the {@link CommandException} which occurred
+     */
+    public ListenableFuture<Void> executeCommandInOrder(final CommandSender sender, final CommandArguments args, final Executor executor) {
+        final Object key = sender == null ? NULL_SENDER : sender;
+        final SettableFuture<Void> done = SettableFuture.create();
+        ListenableFuture<Void> previous = senderTails.put(key, done);
+        Runnable start = new Runnable() {
+            @Override
+            public void run() {
+                Futures.addCallback(executeCommandAsync(sender, args, executor), new FutureCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void result) {
+                        done.set(null);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        done.setException(t);
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+        };
+        // The command runs after the previous one whatever its outcome
+        if (previous == null) {
+            start.run();
+        } else {
+            previous.addListener(start, MoreExecutors.directExecutor());
+        }
+        done.addListener(new Runnable() {
+            @Override
+            public void run() {
+                senderTails.remove(key, done);
+            }
+        }, MoreExecutors.directExecutor());
+        return done;
+    }
+
+    public boolean isOrderedPerSender() {
+        return orderedPerSender;
+    }
+
+    /**
+     * Sets whether {@link #executeCommandAsync(CommandSender, CommandArguments)} keeps the commands of each sender in order.
+     * This is meant for an {@link #setAsyncExecutor(Executor) async executor} running many commands at once, e.g. a {@link ThreadPerTaskExecutor}.
+     *
+     * @param orderedPerSender whether to run the commands of a sender one after another
+     * @see #executeCommandInOrder(CommandSender, CommandArguments, Executor)
+     */
+    public void setOrderedPerSender(boolean orderedPerSender) {
+        this.orderedPerSender = orderedPerSender;
+    }
+
+    /**
+     * @return the cache of completion results, or {@code null} if completions aren't cached
+     */
+    public CompletionCache getCompletionCache() {
+        return completionCache;
+    }
+
+    /**
+     * Sets the cache of completion results. Completions aren't cached by default.
+     *
+     * @param completionCache the cache, or {@code null} to disable caching
+     */
+    public void setCompletionCache(CompletionCache completionCache) {
+        this.completionCache = completionCache;
+    }
+
+    /**
+     * Removes the cached completions which were completed by {@code command}. {@link CacheableCompletingCommandExecutor}s call this when their completions change.
+     *
+     * @param command the command whose completions changed
+     */
+    public void invalidateCompletions(Command command) {
+        CompletionCache cache = completionCache;
+        if (cache != null) {
+            cache.invalidate(command);
+        }
+    }
+
+    /**
+     * Returns a number which changes whenever a command of this manager changes in a way that may change how command lines are processed,
+     * such as its children, aliases, executor, filters or permission.
+     *
+     * @return the current revision of the command tree
+     */
+    public long getRevision() {
+        return revision.get();
+    }
+
+    /**
+     * Returns the registry providing the filters declared by type for the commands of this manager, so that stateless filters are shared between them.
+     *
+     * @return the filter registry
+     */
+    public FilterRegistry getFilterRegistry() {
+        return filterRegistry;
+    }
+
+    /**
+     * Called after a command of this manager changed. Advances the {@link #getRevision() revision} and clears the cached completions.
+     */
+    void onCommandChange() {
+        revision.incrementAndGet();
+        CompletionCache cache = completionCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Creates a {@link CompletionSession} which completes the command lines of {@code sender} typed with {@code syntax}, starting at the root command.
+     *
+     * @param sender the sender who is typing
+     * @param syntax the syntax of the command lines
+     * @return the new session
+     */
+    public CompletionSession newCompletionSession(CommandSender sender, Syntax syntax) {
+        return new CompletionSession(this, sender, syntax);
+    }
+
+    /**
+     * Normalizes the name of a child or alias before it is mapped.
+     * Unless a subclass overrides this, lookups don't call it for ASCII names: they fold ASCII letters while hashing and comparing the name instead.
+     *
+     * @param name the name to normalize
+     * @return the normalized name
+     */
     public String normalizeChildName(String name) {
         if (caseSensitive) {
             return name;
         }
         return name.toLowerCase(Locale.ENGLISH);
     }
+
+    /**
+     * @return whether lookups must call {@link #normalizeChildName(String)} for every name, because it is overridden
+     */
+    boolean overridesNormalizeChildName() {
+        return OVERRIDES_NORMALIZE.get(getClass());
+    }
 }
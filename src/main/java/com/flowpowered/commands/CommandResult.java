@@ -0,0 +1,168 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import com.flowpowered.commands.exception.InsufficientPermissionsException;
+import com.flowpowered.commands.exception.UnknownSubcommandException;
+
+/**
+ * The result of processing a command without throwing, as returned by {@link CommandManager#tryExecuteCommand(CommandSender, CommandArguments)}.
+ * <p>
+ * Failures that are expected from user input, like unknown subcommands, missing permissions or missing subcommand arguments, are described by the result itself.
+ * The matching {@link CommandException} is only created when {@link #getException()} or {@link #rethrow()} is called, so spammed bad input doesn't pay for stack traces.
+ * Exceptions thrown by executors and filters are kept as they are.
+ */
+public final class CommandResult {
+    private static final CommandResult SUCCESS = new CommandResult(Status.SUCCESS, null, null, null, null, false, null);
+    private final Status status;
+    private final Command command;
+    private final String commandLine;
+    private final String name;
+    private final String reason;
+    private final boolean silenceable;
+    private final CommandException exception;
+
+    public static enum Status {
+        SUCCESS,
+        UNKNOWN_SUBCOMMAND,
+        INSUFFICIENT_PERMISSIONS,
+        INVALID_ARGUMENT,
+        FAILURE
+    }
+
+    private CommandResult(Status status, Command command, String commandLine, String name, String reason, boolean silenceable, CommandException exception) {
+        this.status = status;
+        this.command = command;
+        this.commandLine = commandLine;
+        this.name = name;
+        this.reason = reason;
+        this.silenceable = silenceable;
+        this.exception = exception;
+    }
+
+    public static CommandResult success() {
+        return SUCCESS;
+    }
+
+    /**
+     * @param parent the command which has no child or alias named {@code child}
+     * @param commandLine the command line parsed so far
+     * @param child the name of the unknown subcommand
+     */
+    public static CommandResult unknownSubcommand(Command parent, String commandLine, String child) {
+        return new CommandResult(Status.UNKNOWN_SUBCOMMAND, parent, commandLine, child, null, false, null);
+    }
+
+    /**
+     * @param command the command the sender isn't allowed to use
+     */
+    public static CommandResult insufficientPermissions(Command command) {
+        return new CommandResult(Status.INSUFFICIENT_PERMISSIONS, command, null, command.getPermission(), null, false, null);
+    }
+
+    /**
+     * Creates a result for the failure recorded by the last operation on {@code args}.
+     *
+     * @param command the command being processed when the argument failed
+     * @param args the arguments, whose {@link CommandArguments#getLastOutcome() last outcome} is a failure
+     */
+    public static CommandResult invalidArgument(Command command, CommandArguments args) {
+        ParseOutcome outcome = args.getLastOutcome();
+        if (!outcome.isFailure()) {
+            throw new IllegalArgumentException("The last argument operation didn't fail.");
+        }
+        return new CommandResult(Status.INVALID_ARGUMENT, command, args.getPastCommandString(), args.getLastFailureArgName(), args.getLastFailureReason(), outcome == ParseOutcome.MISSING, null);
+    }
+
+    /**
+     * @param command the command being processed when {@code e} was thrown
+     * @param e the exception thrown by an executor, a filter or the command itself
+     */
+    public static CommandResult failure(Command command, CommandException e) {
+        Status status;
+        if (e instanceof UnknownSubcommandException) {
+            status = Status.UNKNOWN_SUBCOMMAND;
+        } else if (e instanceof InsufficientPermissionsException) {
+            status = Status.INSUFFICIENT_PERMISSIONS;
+        } else if (e instanceof InvalidCommandArgumentException) {
+            status = Status.INVALID_ARGUMENT;
+        } else {
+            status = Status.FAILURE;
+        }
+        return new CommandResult(status, command, null, null, null, false, e);
+    }
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public boolean isSuccess() {
+        return this.status == Status.SUCCESS;
+    }
+
+    /**
+     * @return the command at which processing stopped, or {@code null} on success
+     */
+    public Command getCommand() {
+        return this.command;
+    }
+
+    /**
+     * Gets the exception describing this result. Unless an exception was thrown while processing, it is created by this call.
+     *
+     * @return the exception, or {@code null} on success
+     */
+    public CommandException getException() {
+        if (this.exception != null) {
+            return this.exception;
+        }
+        switch (this.status) {
+            case UNKNOWN_SUBCOMMAND:
+                return new UnknownSubcommandException(this.command, this.commandLine, this.name);
+            case INSUFFICIENT_PERMISSIONS:
+                return new InsufficientPermissionsException("Not enough permissions to execute this command.", this.name);
+            case INVALID_ARGUMENT:
+                return new InvalidCommandArgumentException(this.commandLine, this.name, this.reason, this.silenceable);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Throws the exception describing this result, unless it is a success.
+     *
+     * @throws CommandException if processing failed
+     */
+    public void rethrow() throws CommandException {
+        CommandException e = getException();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CommandResult{" + "status=" + this.status + ", command=" + this.command + '}';
+    }
+}
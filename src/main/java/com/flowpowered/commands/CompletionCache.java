@@ -0,0 +1,237 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.flowpowered.commands.syntax.Syntax;
+
+/**
+ * A least recently used cache of completion results, so that repeated tab presses on the same command line don't walk the command tree again.
+ * <p>
+ * Results are keyed by the command completion started at, the permission profile of the sender, the command line, its syntax and the cursor.
+ * The {@link ProfileProvider} maps each sender to an object that is equal for all senders which are allowed the same commands, e.g. their permission group.
+ * Senders it maps to {@code null} are never cached.
+ * <p>
+ * The cache is bounded by its number of entries and by the number of characters in them. Changes to the command tree clear it,
+ * and results completed by a {@link CompletingCommandExecutor} are only kept if it is a {@link CacheableCompletingCommandExecutor}.
+ */
+public class CompletionCache {
+    private final int maxEntries;
+    private final long maxChars;
+    private final ProfileProvider profiles;
+    private final LinkedHashMap<Key, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long chars = 0;
+    private long generation = 0;
+
+    /**
+     * @param maxEntries the maximum number of cached results
+     * @param maxChars the maximum number of characters in the cached command lines and candidates
+     * @param profiles the provider of the permission profiles of senders
+     */
+    public CompletionCache(int maxEntries, long maxChars, ProfileProvider profiles) {
+        if (maxEntries <= 0 || maxChars <= 0) {
+            throw new IllegalArgumentException("Invalid bounds! Must be positive!");
+        }
+        if (profiles == null) {
+            throw new IllegalArgumentException("Invalid profile provider! Must not be null!");
+        }
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        this.profiles = profiles;
+    }
+
+    /**
+     * Creates the key for a completion, if it can be cached.
+     *
+     * @return the key, or {@code null} if the completion can't be cached
+     */
+    Key key(Command command, CommandSender sender, CommandArguments args, int cursor) {
+        String commandLine = args.getCommandLine();
+        if (commandLine == null || args.getIndex() != 0 || args.getDepth() != 0) {
+            return null; // We can only tell completions apart by their command line if they haven't been parsed yet
+        }
+        Object profile = profiles.getProfile(sender);
+        if (profile == null) {
+            return null;
+        }
+        return new Key(command, profile, commandLine, args.getSyntax(), cursor, args.getCompletionOptions());
+    }
+
+    synchronized Result get(Key key) {
+        return results.get(key);
+    }
+
+    /**
+     * @return a counter which changes whenever results are invalidated, to be passed to {@link #put}
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches a result, unless results were invalidated since {@code generation} was taken, in which case the result may be stale.
+     */
+    synchronized void put(Key key, Result result, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        Result old = results.put(key, result);
+        if (old != null) {
+            chars -= old.chars;
+        }
+        chars += result.chars;
+        Iterator<Result> it = results.values().iterator();
+        while ((results.size() > maxEntries || chars > maxChars) && it.hasNext()) {
+            chars -= it.next().chars;
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes all the cached results.
+     */
+    public synchronized void invalidate() {
+        ++generation;
+        results.clear();
+        chars = 0;
+    }
+
+    /**
+     * Removes the cached results which were completed by {@code command}.
+     *
+     * @param command the command whose completions changed
+     */
+    public synchronized void invalidate(Command command) {
+        ++generation;
+        Iterator<Result> it = results.values().iterator();
+        while (it.hasNext()) {
+            Result result = it.next();
+            if (result.completedBy == command) {
+                chars -= result.chars;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * @return the number of characters in the cached command lines and candidates
+     */
+    public synchronized long getChars() {
+        return chars;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxChars() {
+        return maxChars;
+    }
+
+    public static interface ProfileProvider {
+        /**
+         * @param sender the sender, or {@code null}
+         * @return an object equal for all the senders which are allowed the same commands, or {@code null} if completions for {@code sender} mustn't be cached
+         */
+        Object getProfile(CommandSender sender);
+    }
+
+    static final class Key {
+        private final Command command;
+        private final Object profile;
+        private final String commandLine;
+        // The same line splits into other tokens under another syntax
+        private final Syntax syntax;
+        private final int cursor;
+        // The same line completes differently when fuzzy or with another candidate limit
+        private final boolean fuzzy;
+        private final int maxCandidates;
+        private final int hash;
+
+        private Key(Command command, Object profile, String commandLine, Syntax syntax, int cursor, CompletionOptions options) {
+            this.command = command;
+            this.profile = profile;
+            this.commandLine = commandLine;
+            this.syntax = syntax;
+            this.cursor = cursor;
+            this.fuzzy = options.isFuzzy();
+            this.maxCandidates = options.getMaxCandidates();
+            int hash = 31 * (31 * (31 * (31 * System.identityHashCode(command) + profile.hashCode()) + commandLine.hashCode()) + System.identityHashCode(syntax)) + cursor;
+            this.hash = 31 * (31 * hash + (fuzzy ? 1 : 0)) + maxCandidates;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return command == other.command && syntax == other.syntax && cursor == other.cursor && fuzzy == other.fuzzy && maxCandidates == other.maxCandidates && commandLine.equals(other.commandLine)
+                    && profile.equals(other.profile);
+        }
+    }
+
+    static final class Result {
+        private final int position;
+        private final List<String> candidates;
+        private final Command completedBy;
+        private final long chars;
+
+        Result(Key key, int position, List<String> candidates, Command completedBy) {
+            this.position = position;
+            this.candidates = candidates == null ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(candidates));
+            this.completedBy = completedBy;
+            long chars = key.commandLine.length();
+            for (String candidate : this.candidates) {
+                chars += candidate.length();
+            }
+            this.chars = chars;
+        }
+
+        int getPosition() {
+            return position;
+        }
+
+        List<String> getCandidates() {
+            return candidates;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Controls how {@link CommandArguments#completeRaw} matches the typed text against the potential candidates, and how many candidates it returns at most.
+ * <p>
+ * With prefix matching (the default) only candidates starting with the typed text are returned, in their natural order.
+ * With fuzzy matching a candidate matches if the typed text is a subsequence of it, so {@code "tpa"} matches {@code "teleport-accept"}.
+ * Fuzzy matches are scored and returned best first; only the best {@link #getMaxCandidates()} of them are kept, using a bounded heap, so completing a short
+ * prefix under a node with thousands of children doesn't build (or send) thousands of candidates.
+ */
+public final class CompletionOptions {
+    /**
+     * Prefix matching with no limit, which is how completion has always behaved.
+     */
+    public static final CompletionOptions DEFAULT = new CompletionOptions(false, Integer.MAX_VALUE);
+    static final int NO_MATCH = Integer.MIN_VALUE;
+    private static final int PREFIX_BONUS = 64;
+    private static final int BOUNDARY_BONUS = 8;
+    private static final int RUN_BONUS = 4;
+    private static final int GAP_PENALTY = 1;
+    private final boolean fuzzy;
+    private final int maxCandidates;
+
+    private CompletionOptions(boolean fuzzy, int maxCandidates) {
+        if (maxCandidates <= 0) {
+            throw new IllegalArgumentException("maxCandidates must be positive");
+        }
+        this.fuzzy = fuzzy;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * @param maxCandidates the maximum number of candidates returned by a single completion
+     * @return options for prefix matching, returning at most the first {@code maxCandidates} matches
+     */
+    public static CompletionOptions prefix(int maxCandidates) {
+        return new CompletionOptions(false, maxCandidates);
+    }
+
+    /**
+     * @param maxCandidates the maximum number of candidates returned by a single completion
+     * @return options for fuzzy matching, returning at most the {@code maxCandidates} best scored matches
+     */
+    public static CompletionOptions fuzzy(int maxCandidates) {
+        return new CompletionOptions(true, maxCandidates);
+    }
+
+    public boolean isFuzzy() {
+        return fuzzy;
+    }
+
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    /**
+     * Scores {@code candidate} against the typed text. The typed text has to be a (case insensitive) subsequence of the candidate.
+     * Characters matched at the start of the candidate or right after a separator ({@code - _ . :} or whitespace), consecutive matches, and candidates
+     * starting with the typed text score higher; skipped characters and longer candidates score lower.
+     *
+     * @param candidate the potential candidate
+     * @param typed the text typed so far
+     * @return the score, or {@link #NO_MATCH} if {@code typed} isn't a subsequence of {@code candidate}
+     */
+    static int score(String candidate, String typed) {
+        int typedLength = typed.length();
+        int candidateLength = candidate.length();
+        if (typedLength > candidateLength) {
+            return NO_MATCH;
+        }
+        int score = 0;
+        int run = 0;
+        int previous = -1;
+        int pos = 0;
+        for (int i = 0; i < typedLength; ++i) {
+            char c = Character.toLowerCase(typed.charAt(i));
+            while (pos < candidateLength && Character.toLowerCase(candidate.charAt(pos)) != c) {
+                ++pos;
+            }
+            if (pos == candidateLength) {
+                return NO_MATCH;
+            }
+            if (pos == 0 || isBoundary(candidate.charAt(pos - 1))) {
+                score += BOUNDARY_BONUS;
+            }
+            if (previous >= 0 && pos == previous + 1) {
+                score += RUN_BONUS * ++run;
+            } else {
+                run = 0;
+                score -= GAP_PENALTY * (pos - previous - 1);
+            }
+            previous = pos++;
+        }
+        if (candidate.regionMatches(true, 0, typed, 0, typedLength)) {
+            score += PREFIX_BONUS;
+        }
+        return score - (candidateLength - typedLength);
+    }
+
+    private static boolean isBoundary(char c) {
+        return c == '-' || c == '_' || c == '.' || c == ':' || Character.isWhitespace(c);
+    }
+
+    /**
+     * Adds the best scored matches of {@code typed} among {@code potentialCandidates} to {@code out}, best first.
+     * At most {@link #getMaxCandidates()} matches are kept at any time, so memory use doesn't depend on the number of potential candidates.
+     * Equally scored candidates are ordered by their natural order.
+     *
+     * @param potentialCandidates the candidates to match against
+     * @param typed the text typed so far
+     * @param out the list the matches are appended to
+     * @return the number of matches added
+     */
+    int topMatches(Collection<String> potentialCandidates, String typed, List<String> out) {
+        PriorityQueue<ScoredCandidate> heap = new PriorityQueue<>(Math.min(maxCandidates, 16) + 1);
+        for (String candidate : potentialCandidates) {
+            int score = score(candidate, typed);
+            if (score == NO_MATCH) {
+                continue;
+            }
+            if (heap.size() < maxCandidates) {
+                heap.add(new ScoredCandidate(candidate, score));
+            } else if (heap.peek().isWorseThan(candidate, score)) {
+                heap.poll();
+                heap.add(new ScoredCandidate(candidate, score));
+            }
+        }
+        ScoredCandidate[] sorted = heap.toArray(new ScoredCandidate[heap.size()]);
+        Arrays.sort(sorted);
+        for (int i = sorted.length - 1; i >= 0; --i) {
+            out.add(sorted[i].candidate);
+        }
+        return sorted.length;
+    }
+
+    /**
+     * Ordered worst first, so that the head of a {@link PriorityQueue} is the one to evict.
+     */
+    private static final class ScoredCandidate implements Comparable<ScoredCandidate> {
+        private final String candidate;
+        private final int score;
+
+        private ScoredCandidate(String candidate, int score) {
+            this.candidate = candidate;
+            this.score = score;
+        }
+
+        private boolean isWorseThan(String otherCandidate, int otherScore) {
+            return score < otherScore || (score == otherScore && candidate.compareTo(otherCandidate) > 0);
+        }
+
+        @Override
+        public int compareTo(ScoredCandidate o) {
+            if (score != o.score) {
+                return score < o.score ? -1 : 1;
+            }
+            return o.candidate.compareTo(candidate);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flowpowered.math.vector.Vector2i;
+
+import com.flowpowered.commands.syntax.Syntax;
+
+/**
+ * Completes the command lines of a single sender as they are typed, reusing the work done for the previous request.
+ * <p>
+ * After each completion the session remembers the deepest command that was reached before the argument being completed, together with the part of the
+ * line that resolved it. When the next line starts with that part, only the rest of the line is tokenized, and processing continues from that command
+ * instead of walking the tree from the root again. Typing one more character usually only changes the last argument, so most requests are resumed.
+ * <p>
+ * The remembered path is dropped when the command tree of the manager {@link CommandManager#getRevision() changes}, or the root command is replaced.
+ * Permissions along the path are checked again on every request, but {@link CommandFilter}s are not: filters which depend on anything but the command
+ * line and the tree should call {@link #reset()} when that changes.
+ * <p>
+ * Sessions are meant to be held per sender, and requests of one session are processed one at a time.
+ */
+public class CompletionSession {
+    private final CommandManager manager;
+    private final CommandSender sender;
+    private final Syntax syntax;
+    private Command root = null;
+    private long revision;
+    private String prefix = null;
+    private List<Command> path = null;
+    private CommandArguments state = null;
+
+    public CompletionSession(CommandManager manager, CommandSender sender, Syntax syntax) {
+        this.manager = manager;
+        this.sender = sender;
+        this.syntax = syntax;
+    }
+
+    public CommandSender getSender() {
+        return sender;
+    }
+
+    public Syntax getSyntax() {
+        return syntax;
+    }
+
+    /**
+     * Completes {@code line} at {@code cursor}, like {@link Command#complete(CommandSender, CommandArguments, int, List)} on the root command.
+     *
+     * @param line the command line typed so far
+     * @param cursor the position in {@code line} to complete at
+     * @param candidates the list the candidates are added to
+     * @return the position in {@code line} the candidates replace the text from, or {@code -1} if there are none
+     * @throws CommandException if processing the line failed
+     */
+    public synchronized int complete(String line, int cursor, List<CharSequence> candidates) throws CommandException {
+        Command root = manager.getRootCommand();
+        long revision = manager.getRevision();
+        int base = 0;
+        Command start = root;
+        List<Command> path = new ArrayList<>();
+        CommandArguments args;
+        if (canResume(root, revision, line, cursor)) {
+            base = this.prefix.length();
+            args = new CommandArguments(line.substring(base), syntax);
+            args.continueFrom(this.state);
+            int last = this.path.size() - 1;
+            path.addAll(this.path.subList(0, last));
+            start = this.path.get(last);
+        } else {
+            args = new CommandArguments(line, syntax);
+        }
+        Tracker tracker = new Tracker(cursor - base, base, path);
+        try {
+            start.process(sender, args, tracker);
+        } finally {
+            this.root = root;
+            this.revision = revision;
+            this.prefix = tracker.prefixEnd < 0 ? null : line.substring(0, tracker.prefixEnd);
+            this.path = tracker.savedPath;
+            this.state = tracker.savedState;
+        }
+        int pos = tracker.getPosition();
+        if (pos < 0) {
+            return pos;
+        }
+        candidates.addAll(tracker.getCandidates());
+        return pos + base;
+    }
+
+    /**
+     * Forgets the remembered path, so that the next request is processed from the root command.
+     */
+    public synchronized void reset() {
+        this.root = null;
+        this.prefix = null;
+        this.path = null;
+        this.state = null;
+    }
+
+    private boolean canResume(Command root, long revision, String line, int cursor) {
+        if (this.prefix == null || this.root != root || this.revision != revision || cursor < this.prefix.length() || !line.startsWith(this.prefix)) {
+            return false;
+        }
+        for (Command command : this.path) {
+            if (!command.hasPermission(sender)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Completes like {@link Command.Complete}, remembering the deepest command reached before the argument at the cursor.
+     */
+    private static class Tracker extends Command.Complete {
+        private final int cursor;
+        private final int base;
+        private final List<Command> path;
+        private int prefixEnd = -1;
+        private List<Command> savedPath = null;
+        private CommandArguments savedState = null;
+
+        public Tracker(int cursor, int base, List<Command> path) {
+            super(cursor);
+            this.cursor = cursor;
+            this.base = base;
+            this.path = path;
+        }
+
+        @Override
+        public boolean step(Command command, CommandSender sender, CommandArguments args) throws CommandException {
+            path.add(command);
+            if (args.hasMore()) {
+                // Everything before the current argument is what resolved this command, so it can be resumed from as long as that doesn't change
+                int start = args.absoluteArgumentToOffset(new Vector2i(args.getIndex(), 0));
+                if (start <= cursor && base + start > 0) {
+                    prefixEnd = base + start;
+                    savedPath = new ArrayList<>(path);
+                    savedState = args.saveState();
+                }
+            }
+            return super.step(command, sender, args);
+        }
+    }
+}
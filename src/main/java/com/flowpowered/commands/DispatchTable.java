@@ -0,0 +1,164 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * An immutable table that maps the names under a {@link Command} to a child {@link Command} and/or an {@link Alias}.
+ * The table is an open addressing hash table which hashes and compares the looked up names directly, so lookups never allocate.
+ * When the table folds case, ASCII letters are folded on the fly; other names go through {@link CommandManager#normalizeChildName(String)} first.
+ * If that method is overridden, every looked up name goes through it and is then compared as is.
+ */
+final class DispatchTable {
+    static final DispatchTable EMPTY = new DispatchTable();
+    private final boolean foldCase;
+    private final boolean normalize;
+    private final String[] names;
+    private final Command[] children;
+    private final Alias[] aliases;
+    private final int mask;
+    private final SortedSet<String> sortedNames;
+
+    private DispatchTable() {
+        this.sortedNames = Collections.unmodifiableSortedSet(new TreeSet<String>());
+        this.foldCase = false;
+        this.normalize = false;
+        this.names = new String[1];
+        this.children = new Command[1];
+        this.aliases = new Alias[1];
+        this.mask = 0;
+    }
+
+    /**
+     * @param children the children, mapped by their normalized names
+     * @param aliases the aliases, mapped by their normalized names
+     * @param manager the manager which normalized the names
+     */
+    DispatchTable(Map<String, Command> children, Map<String, Alias> aliases, CommandManager manager) {
+        SortedSet<String> all = new TreeSet<>(children.keySet());
+        all.addAll(aliases.keySet());
+        this.sortedNames = Collections.unmodifiableSortedSet(all);
+        int capacity = Integer.highestOneBit(Math.max(all.size(), 1) * 2 - 1) << 1; // At most half full
+        this.normalize = manager.overridesNormalizeChildName();
+        this.foldCase = !this.normalize && !manager.isCaseSensitive();
+        this.names = new String[capacity];
+        this.children = new Command[capacity];
+        this.aliases = new Alias[capacity];
+        this.mask = capacity - 1;
+        for (String name : all) {
+            int slot = hash(name, 0, name.length()) & mask;
+            while (this.names[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            this.names[slot] = name;
+            this.children[slot] = children.get(name);
+            this.aliases[slot] = aliases.get(name);
+        }
+    }
+
+    /**
+     * Finds the slot of {@code name}, which doesn't have to be normalized.
+     *
+     * @return the slot, or {@code -1} if there's no child or alias with that name
+     */
+    int find(String name, CommandManager manager) {
+        return find(name, 0, name.length(), manager);
+    }
+
+    /**
+     * Finds the slot of the name in {@code name} from {@code start} (inclusive) to {@code end} (exclusive), which doesn't have to be normalized.
+     *
+     * @return the slot, or {@code -1} if there's no child or alias with that name
+     */
+    int find(String name, int start, int end, CommandManager manager) {
+        if (normalize) {
+            String normalized = manager.normalizeChildName(name.substring(start, end));
+            return probe(normalized, 0, normalized.length());
+        }
+        if (foldCase) {
+            for (int i = start; i < end; ++i) {
+                if (name.charAt(i) >= 0x80) {
+                    String normalized = manager.normalizeChildName(name.substring(start, end));
+                    return probe(normalized, 0, normalized.length());
+                }
+            }
+        }
+        return probe(name, start, end);
+    }
+
+    private int probe(String name, int start, int end) {
+        int slot = hash(name, start, end) & mask;
+        String candidate;
+        while ((candidate = this.names[slot]) != null) {
+            if (matches(candidate, name, start, end)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the names of all the children and aliases, sorted for completion
+     */
+    SortedSet<String> getSortedNames() {
+        return this.sortedNames;
+    }
+
+    Command getChild(int slot) {
+        return slot < 0 ? null : this.children[slot];
+    }
+
+    Alias getAlias(int slot) {
+        return slot < 0 ? null : this.aliases[slot];
+    }
+
+    private int hash(String name, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; ++i) {
+            h = 31 * h + fold(name.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean matches(String candidate, String name, int start, int end) {
+        if (candidate.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < candidate.length(); ++i) {
+            if (candidate.charAt(i) != fold(name.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private char fold(char c) {
+        return foldCase && c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
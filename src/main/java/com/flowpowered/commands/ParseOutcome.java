@@ -0,0 +1,55 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+/**
+ * The outcome of the last argument operation on a {@link CommandArguments}, as returned by {@link CommandArguments#getLastOutcome()}.
+ * <p>
+ * The {@code tryPop*} methods of {@link CommandArguments} report failures through this instead of throwing, so bad input doesn't cost an exception.
+ */
+public enum ParseOutcome {
+    /**
+     * The argument was parsed successfully.
+     */
+    SUCCESS,
+    /**
+     * The argument couldn't be parsed, but the failure was silenced and the default value was used instead.
+     */
+    DEFAULTED,
+    /**
+     * The argument couldn't be parsed in a way that may be silenced by a default value, usually because it is missing.
+     */
+    MISSING,
+    /**
+     * The argument is invalid and the failure mustn't be silenced.
+     */
+    INVALID;
+
+    /**
+     * @return {@code true} if this outcome is a failure that wasn't silenced
+     */
+    public boolean isFailure() {
+        return this == MISSING || this == INVALID;
+    }
+}
@@ -23,7 +23,6 @@
  */
 package com.flowpowered.commands;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import gnu.trove.list.TIntList;
@@ -57,7 +56,8 @@ public class PositionallyOverridableCommandArguments extends CommandArguments {
     }
 
     public PositionallyOverridableCommandArguments(CommandArguments args) {
-        this(new ArrayList<>(args.getAll()), new TIntArrayList(getPaddings(args)), args.getSyntax(), copyUnclosedQuote(args.getUnclosedQuote()), args.getLogger());
+        this(getArgs(args, 0, args.length()), new TIntArrayList(getPaddings(args)), args.getSyntax(), copyUnclosedQuote(args.getUnclosedQuote()), args.getLogger());
+        setCompletionOptions(args.getCompletionOptions());
     }
 
     @Override
@@ -93,7 +93,7 @@ public class PositionallyOverridableCommandArguments extends CommandArguments {
 
     @Override
     public PositionallyOverridableCommandArguments subArgs(int begin, int end) {
-        List<String> newArgs = new ArrayList<>(getAll().subList(begin, end));
+        List<String> newArgs = getArgs(begin, end);
         TIntList newPaddings = new TIntArrayList(getPaddings().subList(begin, end));
         int offset = absoluteArgumentToOffset(new Vector2i(begin, 0));
         newPaddings.set(0, offset);
@@ -102,17 +102,18 @@ public class PositionallyOverridableCommandArguments extends CommandArguments {
         if (unclosedQuote != null) {
             newUnclosedQuote = new ImmutablePair<>(unclosedQuote.getLeft(), unclosedQuote.getRight());
         }
-        return new PositionallyOverridableCommandArguments(newArgs, newPaddings, getSyntax(), newUnclosedQuote, getLogger());
+        PositionallyOverridableCommandArguments sub = new PositionallyOverridableCommandArguments(newArgs, newPaddings, getSyntax(), newUnclosedQuote, getLogger());
+        sub.setCompletionOptions(getCompletionOptions());
+        return sub;
     }
 
     @Override
-    public <T> T success(String argName, T parsedValue, boolean fallbackValue) {
+    protected void recordSuccess(String argName, boolean fallbackValue) {
         boolean hadOverride = hasOverride();
-        T result = super.success(argName, parsedValue, fallbackValue);
+        super.recordSuccess(argName, fallbackValue);
         if (hadOverride) {
             ++overrideIndexOffset;
         }
-        return result;
     }
 
     protected static Pair<String, Integer> copyUnclosedQuote(Pair<String, Integer> unclosedQuote) {
@@ -0,0 +1,129 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands;
+
+import java.util.Arrays;
+
+/**
+ * Stores the primitive values parsed by {@link CommandArguments} without boxing them.
+ * Values are kept as raw bits in an array parallel to their names and types. Commands only have a handful of arguments, so slots are found by a linear scan.
+ */
+final class PrimitiveSlots {
+    static final byte INT = 1;
+    static final byte FLOAT = 2;
+    static final byte DOUBLE = 3;
+    static final byte BOOLEAN = 4;
+    private static final int INITIAL_CAPACITY = 4;
+    private String[] keys = null;
+    private byte[] types = null;
+    private long[] values = null;
+    private int size = 0;
+
+    /**
+     * @return the slot of {@code key}, or {@code -1} if there is none
+     */
+    int find(String key) {
+        for (int i = 0; i < size; ++i) {
+            String k = keys[i];
+            if (k == key || k.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    void put(String key, byte type, long bits) {
+        int slot = find(key);
+        if (slot < 0) {
+            if (keys == null) {
+                keys = new String[INITIAL_CAPACITY];
+                types = new byte[INITIAL_CAPACITY];
+                values = new long[INITIAL_CAPACITY];
+            } else if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                types = Arrays.copyOf(types, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            slot = size++;
+            keys[slot] = key;
+        }
+        types[slot] = type;
+        values[slot] = bits;
+    }
+
+    void remove(String key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            int last = --size;
+            keys[slot] = keys[last];
+            types[slot] = types[last];
+            values[slot] = values[last];
+            keys[last] = null;
+        }
+    }
+
+    byte getType(int slot) {
+        return types[slot];
+    }
+
+    long getBits(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Boxes the value of {@code slot}, for callers asking for it as an {@link Object}.
+     */
+    Object box(int slot) {
+        long bits = values[slot];
+        switch (types[slot]) {
+            case INT:
+                return (int) bits;
+            case FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+            case BOOLEAN:
+                return bits != 0;
+            default:
+                throw new IllegalStateException("Unknown slot type " + types[slot]);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void putAll(PrimitiveSlots other) {
+        for (int i = 0; i < other.size; ++i) {
+            put(other.keys[i], other.types[i], other.values[i]);
+        }
+    }
+
+    void clear() {
+        if (keys != null) {
+            Arrays.fill(keys, 0, size, null);
+        }
+        size = 0;
+    }
+}
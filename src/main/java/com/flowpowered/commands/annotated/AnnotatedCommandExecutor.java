@@ -23,9 +23,14 @@
  */
 package com.flowpowered.commands.annotated;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.flowpowered.commands.Command;
 import com.flowpowered.commands.CommandArguments;
@@ -35,41 +40,87 @@ import com.flowpowered.commands.CommandSender;
 
 /**
  * Allows for method-registration of commands.
+ * <p>
+ * Each method is bound once, when the executor is created or, if it's lazy, when its command is first executed, to a {@link MethodHandle} taking the sender
+ * and the arguments in that order, so executing a command is a direct call without reflection, argument arrays or
+ * {@link java.lang.reflect.InvocationTargetException}s.
  */
 public final class AnnotatedCommandExecutor implements CommandExecutor {
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, CommandSender.class, CommandArguments.class);
     private final Object instance;
-    private final Map<Command, Method> cmdMap;
+    private final Map<Command, Method> methods;
+    private final ConcurrentMap<Command, MethodHandle> cmdMap = new ConcurrentHashMap<>();
 
     protected AnnotatedCommandExecutor(Object instance, Map<Command, Method> cmdMap) {
+        this(instance, cmdMap, false);
+    }
+
+    /**
+     * @param instance the object containing the commands, or {@code null} if they're static
+     * @param cmdMap the methods of the commands, not modified afterwards
+     * @param lazy whether to bind each method on the first execution of its command instead of now
+     */
+    AnnotatedCommandExecutor(Object instance, Map<Command, Method> cmdMap, boolean lazy) {
         this.instance = instance;
-        this.cmdMap = cmdMap;
+        this.methods = cmdMap;
+        if (!lazy) {
+            for (Map.Entry<Command, Method> entry : cmdMap.entrySet()) {
+                this.cmdMap.put(entry.getKey(), bind(entry.getValue(), instance));
+            }
+        }
+    }
+
+    /**
+     * Binds {@code method} to a handle of type {@code (CommandSender, CommandArguments)Object}, with the receiver, parameter order and return value already adapted.
+     *
+     * @param method the command method, with its parameters validated by the factory
+     * @param instance the object to call the method on, or {@code null} if it's static
+     * @return the bound handle
+     * @throws IllegalArgumentException if the method can't be accessed
+     */
+    static MethodHandle bind(Method method, Object instance) {
+        method.setAccessible(true);
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access command method " + method.getName(), e);
+        }
+        if (!Modifier.isStatic(method.getModifiers())) {
+            handle = handle.bindTo(instance);
+        }
+        // Support backwards arguments //TODO: Should we?
+        if (!CommandSender.class.isAssignableFrom(method.getParameterTypes()[0])) {
+            handle = MethodHandles.permuteArguments(handle, MethodType.methodType(handle.type().returnType(), handle.type().parameterType(1), handle.type().parameterType(0)), 1, 0);
+        }
+        return handle.asType(INVOKER_TYPE);
     }
 
     @Override
     public boolean execute(Command command, CommandSender sender, CommandArguments args) throws CommandException {
-        Method method = cmdMap.get(command);
-        if (method != null) {
-            method.setAccessible(true);
-            try {
-                Object ret;
-                // Support backwards arguments //TODO: Should we?
-                if (CommandSender.class.isAssignableFrom(method.getParameterTypes()[0])) {
-                    ret = method.invoke(instance, sender, args);
-                } else {
-                    ret = method.invoke(instance, args, sender);
-                }
-                if (ret instanceof Boolean && !((Boolean) ret).booleanValue()) {
-                    return false;
+        MethodHandle handle = cmdMap.get(command);
+        if (handle == null) {
+            Method method = methods.get(command);
+            if (method != null) {
+                // concurrent first executions may both bind, but all of them use the handle that was stored first
+                handle = bind(method, instance);
+                MethodHandle previous = cmdMap.putIfAbsent(command, handle);
+                if (previous != null) {
+                    handle = previous;
                 }
-            } catch (InvocationTargetException e) {
-                Throwable cause = e.getCause();
-                if (cause instanceof CommandException) {
-                    throw (CommandException) cause;
-                }
-
-                throw new WrappedCommandException(e);
-            } catch (Exception e) {
-                throw new WrappedCommandException(e);
+            }
+        }
+        if (handle != null) {
+            Object ret;
+            try {
+                ret = (Object) handle.invokeExact(sender, args);
+            } catch (CommandException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new WrappedCommandException(t);
+            }
+            if (ret instanceof Boolean && !((Boolean) ret).booleanValue()) {
+                return false;
             }
         }
         return true;
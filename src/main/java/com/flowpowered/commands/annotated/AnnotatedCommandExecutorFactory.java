@@ -33,15 +33,18 @@ import org.slf4j.LoggerFactory;
 
 import com.flowpowered.commands.Command;
 import com.flowpowered.commands.CommandArguments;
+import com.flowpowered.commands.CommandInitializer;
 import com.flowpowered.commands.CommandManager;
 import com.flowpowered.commands.CommandProvider;
 import com.flowpowered.commands.CommandSender;
 import com.flowpowered.commands.filter.CommandFilter;
+import com.flowpowered.commands.filter.FilterRegistry;
 
 public final class AnnotatedCommandExecutorFactory {
     private final CommandManager manager;
     private final CommandProvider provider;
     private final Logger logger;
+    private volatile boolean lazy;
 
     public AnnotatedCommandExecutorFactory(CommandManager manager, CommandProvider provider) {
         this(manager, provider, LoggerFactory.getLogger("Commands.Annotated"));
@@ -53,14 +56,30 @@ public final class AnnotatedCommandExecutorFactory {
         this.provider = provider;
     }
 
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Sets whether the commands registered from now on are set up lazily.
+     * <p>
+     * Lazy commands are added to the tree with their names, description, usage, help and permission right away, so dispatch and completion can find them.
+     * Their filters are only created when they're first processed, and their methods are only bound when they're first executed, so commands that are never used
+     * don't cost more than their registration.
+     *
+     * @param lazy whether to set up commands lazily
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
     private boolean validateMethod(Method method, boolean classProcessed) {
         if (hasCommandAnnotation(method)) {
             if (Modifier.isAbstract(method.getModifiers())) {
                 logger.warn("Unable to register " + method.getName() + " as a command, method can not be abstract.");
                 return false;
             }
-            if (classProcessed && !Modifier.isStatic(method.getModifiers())) {
-                logger.warn("Unable to register " + method.getName() + " as a command, method must be static.");
+            if (!checkStatic(method.getName(), Modifier.isStatic(method.getModifiers()), classProcessed)) {
                 return false;
             }
             Class<?>[] params = method.getParameterTypes();
@@ -79,54 +98,113 @@ public final class AnnotatedCommandExecutorFactory {
         return false;
     }
 
+    /**
+     * Checks that a command method can be called without an instance when only a class was supplied, warning if it can't.
+     *
+     * @param methodName the name of the command method
+     * @param isStatic whether the method is static
+     * @param classProcessed whether the commands are being registered from a class, without an instance
+     * @return whether the method can be registered
+     */
+    boolean checkStatic(String methodName, boolean isStatic, boolean classProcessed) {
+        if (classProcessed && !isStatic) {
+            logger.warn("Unable to register " + methodName + " as a command, method must be static.");
+            return false;
+        }
+        return true;
+    }
+
     private boolean hasCommandAnnotation(Method method) {
         return method.isAnnotationPresent(CommandDescription.class);
     }
 
+    /**
+     * Creates or gets the command described by the given annotation values and sets it up, without touching its executor.
+     * <p>
+     * This is shared by the reflective registration and the registrars generated by {@link com.flowpowered.commands.annotated.processor.CommandRegistrarProcessor}.
+     *
+     * @param parent the parent to add the command to when {@code autoParent} is set, or {@code null} for the root command
+     * @param name the {@link CommandDescription#name() unique name} of the command
+     * @param usage the {@link CommandDescription#usage() usage}
+     * @param desc the {@link CommandDescription#desc() description}
+     * @param help the {@link CommandDescription#help() help}
+     * @param autoParent whether to add the command as a child of {@code parent}
+     * @param permission the {@link Permissible permission}, or {@code null} to leave it unset
+     * @param filterTypes the {@link Filter filter} types, or {@code null} for none
+     * @param parentNames the {@link Parent#value() parents} to add the command to, or {@code null} for none
+     * @param childNames the {@link Parent#name() child names} to use under each of {@code parentNames}
+     * @return the command
+     */
+    Command registerCommand(Command parent, String name, String usage, String desc, String help, boolean autoParent, String permission, Class<?>[] filterTypes,
+            String[] parentNames, String[] childNames) {
+        // create the command
+        Command command = manager.getCommand(provider, name);
+        if (autoParent) {
+            if (parent == null) {
+                parent = manager.getRootCommand();
+            }
+            parent.addChild(command);
+        }
+
+        // set annotation data
+        command.setDescription(desc);
+        command.setUsage(usage);
+        command.setHelp(help);
+        // add the permissions
+        if (permission != null) {
+            command.setPermission(permission);
+        }
+
+        if (filterTypes != null) {
+            if (lazy) {
+                command.setInitializer(new FilterInitializer(manager.getFilterRegistry(), filterTypes, command.getInitializer()));
+            } else {
+                command.addFilters(createFilters(manager.getFilterRegistry(), filterTypes));
+            }
+        }
+
+        if (parentNames != null) {
+            for (int i = 0; i < parentNames.length; i++) {
+                String parentName = parentNames[i];
+                if (parentName == null || parentName.isEmpty()) {
+                    // TODO: Yell at them instead? Throw something?
+                    continue;
+                }
+                Command parentCmd = manager.getStoredCommand(parentName); // TODO: Get ourselves access to getCommand(String)
+                String childName = childNames[i];
+                if (childName == null || childName.isEmpty()) {
+                    parentCmd.addChild(command);
+                } else {
+                    parentCmd.addChildIfAbsent(childName, command);
+                }
+            }
+        }
+        return command;
+    }
+
+    /**
+     * Gets the filters of the given types from the registry, which shares the stateless ones between all the commands of the manager.
+     */
+    private static CommandFilter[] createFilters(FilterRegistry registry, Class<?>[] filterTypes) {
+        CommandFilter[] filters = new CommandFilter[filterTypes.length];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = registry.get(filterTypes[i].asSubclass(CommandFilter.class));
+        }
+        return filters;
+    }
+
     private AnnotatedCommandExecutor create(Class<?> commands, Object instance, Command parent) {
         Map<Command, Method> cmdMap = new HashMap<Command, Method>();
         while (commands != null) {
             for (Method method : commands.getDeclaredMethods()) {
-                method.setAccessible(true);
                 // check the validity of the current method
                 if (!validateMethod(method, instance == null)) {
                     continue;
                 }
 
-                // create the command
                 CommandDescription a = method.getAnnotation(CommandDescription.class);
-                Command command = manager.getCommand(provider, a.name());
-                if (a.autoParent()) {
-                    if (parent == null) {
-                        parent = manager.getRootCommand();
-                    }
-                    parent.addChild(command);
-                }
-
-                // set annotation data
-                command.setDescription(a.desc());
-                command.setUsage(a.usage());
-                command.setHelp(a.help());
-                // add the permissions
-                if (method.isAnnotationPresent(Permissible.class)) {
-                    command.setPermission(method.getAnnotation(Permissible.class).value());
-                }
-
-                if (method.isAnnotationPresent(Filter.class)) {
-                    Filter cfa = method.getAnnotation(Filter.class);
-                    Class<? extends CommandFilter>[] filterTypes = cfa.value();
-                    CommandFilter[] filters = new CommandFilter[filterTypes.length];
-                    for (int i = 0; i < filters.length; i++) {
-                        try {
-                            filters[i] = filterTypes[i].newInstance();
-                        } catch (InstantiationException e) {
-                            throw new IllegalArgumentException("All CommandFilters must have an empty constructor.");
-                        } catch (IllegalAccessException e) {
-                            e.printStackTrace(); // TODO: logging
-                        }
-                    }
-                    command.addFilters(filters);
-                }
+                Permissible permissible = method.getAnnotation(Permissible.class);
+                Filter filter = method.getAnnotation(Filter.class);
 
                 Parent[] parents = new Parent[0];
 
@@ -142,21 +220,16 @@ public final class AnnotatedCommandExecutorFactory {
                     parents = newParents;
                 }
 
-                for (Parent cpa : parents) {
-                    String parentName = cpa.value();
-                    if (parentName == null || parentName.isEmpty()) {
-                        // TODO: Yell at them instead? Throw something?
-                        continue;
-                    }
-                    Command parentCmd = manager.getStoredCommand(parentName); // TODO: Get ourselves access to getCommand(String)
-                    String childName = cpa.name();
-                    if (childName == null || childName.isEmpty()) {
-                        parentCmd.addChild(command);
-                    } else {
-                        parentCmd.addChildIfAbsent(childName, command);
-                    }
+                String[] parentNames = new String[parents.length];
+                String[] childNames = new String[parents.length];
+                for (int i = 0; i < parents.length; i++) {
+                    parentNames[i] = parents[i].value();
+                    childNames[i] = parents[i].name();
                 }
 
+                Command command = registerCommand(parent, a.name(), a.usage(), a.desc(), a.help(), a.autoParent(), permissible == null ? null : permissible.value(),
+                        filter == null ? null : filter.value(), parentNames, childNames);
+
                 // put the command in our map
                 cmdMap.put(command, method);
             }
@@ -164,7 +237,7 @@ public final class AnnotatedCommandExecutorFactory {
         }
 
         // set the executor of the commands
-        AnnotatedCommandExecutor exe = new AnnotatedCommandExecutor(instance, cmdMap);
+        AnnotatedCommandExecutor exe = new AnnotatedCommandExecutor(instance, cmdMap, lazy);
         for (Command cmd : cmdMap.keySet()) {
             cmd.setExecutor(exe);
         }
@@ -207,4 +280,27 @@ public final class AnnotatedCommandExecutorFactory {
     public AnnotatedCommandExecutor create(Class<?> commands, Command parent) {
         return create(commands, null, parent);
     }
+
+    /**
+     * Adds the filters of a lazily registered command, after running the initializer it replaced, if any.
+     */
+    private static final class FilterInitializer implements CommandInitializer {
+        private final FilterRegistry registry;
+        private final Class<?>[] filterTypes;
+        private final CommandInitializer previous;
+
+        private FilterInitializer(FilterRegistry registry, Class<?>[] filterTypes, CommandInitializer previous) {
+            this.registry = registry;
+            this.filterTypes = filterTypes;
+            this.previous = previous;
+        }
+
+        @Override
+        public void initialize(Command command) {
+            if (previous != null) {
+                previous.initialize(command);
+            }
+            command.addFilters(createFilters(registry, filterTypes));
+        }
+    }
 }
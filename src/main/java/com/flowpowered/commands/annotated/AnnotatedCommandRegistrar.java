@@ -0,0 +1,171 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.annotated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.flowpowered.commands.Command;
+import com.flowpowered.commands.CommandArguments;
+import com.flowpowered.commands.CommandException;
+import com.flowpowered.commands.CommandExecutor;
+import com.flowpowered.commands.CommandSender;
+
+/**
+ * Base class of the registrars generated by {@link com.flowpowered.commands.annotated.processor.CommandRegistrarProcessor} for classes with annotated command methods.
+ * <p>
+ * A registrar sets up the same commands as {@link AnnotatedCommandExecutorFactory#create(Object)}, but the annotation values were read and validated at compile
+ * time and the methods are called directly, so no reflection is involved.
+ *
+ * @param <T> the type declaring the command methods
+ */
+public abstract class AnnotatedCommandRegistrar<T> {
+    /**
+     * Registers all the commands of {@code T}, calling the instance methods on {@code instance}.
+     *
+     * @param factory the factory providing the manager and the provider of the commands
+     * @param instance the object containing the commands
+     * @return the executor set on the commands
+     */
+    public final CommandExecutor register(AnnotatedCommandExecutorFactory factory, T instance) {
+        return register(factory, instance, null);
+    }
+
+    /**
+     * Registers all the static commands of {@code T}.
+     *
+     * @param factory the factory providing the manager and the provider of the commands
+     * @return the executor set on the commands
+     */
+    public final CommandExecutor register(AnnotatedCommandExecutorFactory factory) {
+        return register(factory, null, null);
+    }
+
+    /**
+     * Registers all the commands of {@code T}, calling the instance methods on {@code instance}.
+     *
+     * @param factory the factory providing the manager and the provider of the commands
+     * @param instance the object containing the commands, or {@code null} to register only the static ones
+     * @param parent to register commands under
+     * @return the executor set on the commands
+     */
+    public final CommandExecutor register(AnnotatedCommandExecutorFactory factory, T instance, Command parent) {
+        Registration registration = new Registration(factory, instance == null, parent);
+        registerCommands(registration);
+
+        // set the executor of the commands
+        Executor<T> exe = new Executor<>(this, instance, registration.ids);
+        for (Command cmd : registration.ids.keySet()) {
+            cmd.setExecutor(exe);
+        }
+        return exe;
+    }
+
+    /**
+     * Adds every command method, in declaration order, to {@code registration}.
+     *
+     * @param registration the registration in progress
+     */
+    protected abstract void registerCommands(Registration registration);
+
+    /**
+     * Calls the command method with the given id.
+     *
+     * @param id the id the method was {@link Registration#add registered} with
+     * @param instance the object containing the commands, or {@code null} if only static ones were registered
+     * @param sender the sender of the command
+     * @param args the arguments of the command
+     * @return {@code false} if the method returned {@code false}, {@code true} otherwise
+     * @throws Throwable anything thrown by the method
+     */
+    protected abstract boolean invoke(int id, T instance, CommandSender sender, CommandArguments args) throws Throwable;
+
+    /**
+     * Collects the commands created by a registrar.
+     */
+    protected static final class Registration {
+        private final AnnotatedCommandExecutorFactory factory;
+        private final boolean classProcessed;
+        private final Command parent;
+        private final Map<Command, Integer> ids = new HashMap<>();
+
+        private Registration(AnnotatedCommandExecutorFactory factory, boolean classProcessed, Command parent) {
+            this.factory = factory;
+            this.classProcessed = classProcessed;
+            this.parent = parent;
+        }
+
+        /**
+         * Creates the command of a method, unless it's an instance method and there is no instance.
+         *
+         * @param id the id to pass to {@link AnnotatedCommandRegistrar#invoke invoke}
+         * @param methodName the name of the method
+         * @param isStatic whether the method is static
+         * @param name the {@link CommandDescription#name() unique name} of the command
+         * @param usage the {@link CommandDescription#usage() usage}
+         * @param desc the {@link CommandDescription#desc() description}
+         * @param help the {@link CommandDescription#help() help}
+         * @param autoParent whether to add the command as a child of the parent command
+         * @param permission the {@link Permissible permission}, or {@code null} if none
+         * @param filterTypes the {@link Filter filter} types, or {@code null} if none
+         * @param parentNames the {@link Parent#value() parents} to add the command to, or {@code null} if none
+         * @param childNames the {@link Parent#name() child names} to use under each of {@code parentNames}
+         */
+        public void add(int id, String methodName, boolean isStatic, String name, String usage, String desc, String help, boolean autoParent, String permission,
+                Class<?>[] filterTypes, String[] parentNames, String[] childNames) {
+            if (!factory.checkStatic(methodName, isStatic, classProcessed)) {
+                return;
+            }
+            Command command = factory.registerCommand(parent, name, usage, desc, help, autoParent, permission, filterTypes, parentNames, childNames);
+            ids.put(command, id);
+        }
+    }
+
+    private static final class Executor<T> implements CommandExecutor {
+        private final AnnotatedCommandRegistrar<T> registrar;
+        private final T instance;
+        private final Map<Command, Integer> ids;
+
+        private Executor(AnnotatedCommandRegistrar<T> registrar, T instance, Map<Command, Integer> ids) {
+            this.registrar = registrar;
+            this.instance = instance;
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean execute(Command command, CommandSender sender, CommandArguments args) throws CommandException {
+            Integer id = ids.get(command);
+            if (id == null) {
+                return true;
+            }
+            try {
+                return registrar.invoke(id, instance, sender, args);
+            } catch (CommandException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new WrappedCommandException(t);
+            }
+        }
+    }
+}
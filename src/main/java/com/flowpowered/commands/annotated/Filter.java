@@ -38,6 +38,9 @@ import com.flowpowered.commands.filter.CommandFilter;
 public @interface Filter {
     /**
      * Filters to validate before execution.
+     * <p>
+     * The instances come from the manager's {@link com.flowpowered.commands.filter.FilterRegistry FilterRegistry}, so commands declaring the same filter share it
+     * unless it's a {@link com.flowpowered.commands.filter.StatefulFilter StatefulFilter}.
      *
      * @return filters
      */
@@ -0,0 +1,460 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.annotated.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import com.flowpowered.commands.CommandArguments;
+import com.flowpowered.commands.CommandSender;
+import com.flowpowered.commands.annotated.AnnotatedCommandRegistrar;
+import com.flowpowered.commands.annotated.CommandDescription;
+import com.flowpowered.commands.annotated.Filter;
+import com.flowpowered.commands.annotated.Parent;
+import com.flowpowered.commands.annotated.Parents;
+import com.flowpowered.commands.annotated.Permissible;
+
+/**
+ * Checks {@link CommandDescription annotated command methods} at compile time and generates an {@link AnnotatedCommandRegistrar} for every class declaring them.
+ * <p>
+ * The methods are held to the same rules as in {@link com.flowpowered.commands.annotated.AnnotatedCommandExecutorFactory AnnotatedCommandExecutorFactory}, but
+ * breaking them is a compile error instead of a warning logged at startup. The registrar of {@code com.example.Commands} is
+ * {@code com.example.CommandsCommandRegistrar} (nested classes are joined with {@code _}) and is used in place of the factory:
+ * <pre>
+ * new CommandsCommandRegistrar().register(factory, new Commands(), parent);
+ * </pre>
+ * Classes the registrar couldn't call into, because a command method or a class it needs is private or otherwise inaccessible from its package, get a warning
+ * instead of a registrar and can still be registered through the factory.
+ */
+@SupportedAnnotationTypes({"com.flowpowered.commands.annotated.CommandDescription", "com.flowpowered.commands.annotated.Filter",
+        "com.flowpowered.commands.annotated.Parent", "com.flowpowered.commands.annotated.Parents", "com.flowpowered.commands.annotated.Permissible"})
+public class CommandRegistrarProcessor extends AbstractProcessor {
+    /**
+     * The suffix appended to the name of the class declaring the commands to get the name of its registrar.
+     */
+    public static final String REGISTRAR_SUFFIX = "CommandRegistrar";
+    private static final String INDENT = "    ";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> holders = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(CommandDescription.class)) {
+            if (element.getKind() == ElementKind.METHOD) {
+                holders.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement holder : holders) {
+            process(holder);
+        }
+        return true;
+    }
+
+    private void process(TypeElement holder) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(holder);
+        List<CommandMethod> methods = new ArrayList<>();
+        List<TypeElement> originating = new ArrayList<>();
+        boolean valid = true;
+        String inaccessible = isReferable(holder, pkg) ? null : "class " + holder.getQualifiedName() + " is not accessible from its package";
+        // same order as the factory: the class itself, then its superclasses
+        for (TypeElement type = holder; type != null; type = getSuperclass(type)) {
+            boolean declaresCommands = false;
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (method.getAnnotation(CommandDescription.class) == null) {
+                    continue;
+                }
+                declaresCommands = true;
+                // check the validity of the current method
+                CommandMethod command = validateMethod(holder, method);
+                if (command == null) {
+                    valid = false;
+                    continue;
+                }
+                if (inaccessible == null) {
+                    inaccessible = checkAccessible(command, pkg);
+                }
+                methods.add(command);
+            }
+            if (declaresCommands) {
+                originating.add(type);
+            }
+        }
+        if (!valid) {
+            return;
+        }
+        if (inaccessible != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "No command registrar generated for " + holder.getQualifiedName() + ", "
+                    + inaccessible, holder);
+            return;
+        }
+        try {
+            write(holder, pkg, methods, originating.toArray(new Element[originating.size()]));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write the command registrar for " + holder.getQualifiedName() + ": " + e, holder);
+        }
+    }
+
+    /**
+     * Reports the problems of a command method, the way {@link com.flowpowered.commands.annotated.AnnotatedCommandExecutorFactory} would at runtime.
+     *
+     * @return the method, or {@code null} if it can't be registered
+     */
+    private CommandMethod validateMethod(TypeElement holder, ExecutableElement method) {
+        if (method.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(holder, method, "Unable to register " + method.getSimpleName() + " as a command, method can not be abstract.");
+            return null;
+        }
+        List<TypeMirror> params = new ArrayList<>();
+        for (Element param : method.getParameters()) {
+            params.add(erasure(param.asType()));
+        }
+        if (params.size() != 2) {
+            error(holder, method, "Unable to register " + method.getSimpleName() + " as a command, method can only have 2 parameters");
+            return null;
+        }
+        TypeMirror sender = type(CommandSender.class);
+        TypeMirror args = type(CommandArguments.class);
+        Types types = processingEnv.getTypeUtils();
+        if (!(types.isAssignable(params.get(0), sender) || types.isAssignable(params.get(1), sender))
+                || !(types.isSameType(params.get(0), args) || types.isSameType(params.get(1), args))) {
+            error(holder, method, "Unable to register " + method.getSimpleName() + " as a command, method parameters must be CommandSender and CommandArguments");
+            return null;
+        }
+        // Support backwards arguments, as the executor does
+        boolean senderFirst = types.isAssignable(params.get(0), sender);
+        TypeMirror senderType = params.get(senderFirst ? 0 : 1);
+
+        List<TypeElement> filters = getFilterTypes(method);
+        for (TypeElement filter : filters) {
+            if (!validateFilter(holder, method, filter)) {
+                return null;
+            }
+        }
+
+        for (Parent parent : getParents(method)) {
+            if (parent.value() == null || parent.value().isEmpty()) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Command " + method.getSimpleName() + " has an empty parent, which will be ignored",
+                        method);
+            }
+        }
+        return new CommandMethod(method, senderFirst, types.isSameType(senderType, sender) ? null : (TypeElement) types.asElement(senderType), filters);
+    }
+
+    private boolean validateFilter(TypeElement holder, ExecutableElement method, TypeElement filter) {
+        boolean empty = false;
+        boolean accessible = filter.getModifiers().contains(Modifier.PUBLIC);
+        if (filter.getKind() == ElementKind.CLASS && !filter.getModifiers().contains(Modifier.ABSTRACT)
+                && (filter.getNestingKind() != NestingKind.MEMBER || filter.getModifiers().contains(Modifier.STATIC))) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(filter.getEnclosedElements())) {
+                if (constructor.getParameters().isEmpty()) {
+                    empty = true;
+                    accessible &= constructor.getModifiers().contains(Modifier.PUBLIC);
+                }
+            }
+        }
+        if (!empty) {
+            error(holder, method, "Unable to register " + method.getSimpleName() + " as a command, all CommandFilters must have an empty constructor.");
+            return false;
+        }
+        if (!accessible) {
+            error(holder, method, "Unable to register " + method.getSimpleName() + " as a command, CommandFilter " + filter.getQualifiedName()
+                    + " and its empty constructor must be public.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the generated registrar can reference everything it needs for the command.
+     *
+     * @return the reason why it can't, or {@code null} if it can
+     */
+    private String checkAccessible(CommandMethod command, PackageElement pkg) {
+        ExecutableElement method = command.method;
+        TypeElement declaring = (TypeElement) method.getEnclosingElement();
+        Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || !modifiers.contains(Modifier.PUBLIC) && !getPackageOf(declaring).equals(pkg)) {
+            return "command method " + declaring.getSimpleName() + "." + method.getSimpleName() + " is not accessible from its package";
+        }
+        if (modifiers.contains(Modifier.STATIC) && !isReferable(declaring, pkg)) {
+            return "class " + declaring.getQualifiedName() + " is not accessible from its package";
+        }
+        if (command.senderType != null && !isReferable(command.senderType, pkg)) {
+            return "sender type " + command.senderType.getQualifiedName() + " of command method " + method.getSimpleName() + " is not accessible from its package";
+        }
+        for (TypeElement filter : command.filters) {
+            if (!isReferable(filter, pkg)) {
+                return "filter " + filter.getQualifiedName() + " of command method " + method.getSimpleName() + " is not accessible from its package";
+            }
+        }
+        return null;
+    }
+
+    private boolean isReferable(TypeElement type, PackageElement pkg) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            TypeElement t = (TypeElement) element;
+            if (t.getNestingKind() != NestingKind.TOP_LEVEL && t.getNestingKind() != NestingKind.MEMBER) {
+                return false;
+            }
+            Set<Modifier> modifiers = t.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || !modifiers.contains(Modifier.PUBLIC) && !getPackageOf(t).equals(pkg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(TypeElement holder, PackageElement pkg, List<CommandMethod> methods, Element[] originating) throws IOException {
+        StringBuilder simpleName = new StringBuilder(REGISTRAR_SUFFIX);
+        for (Element element = holder; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            simpleName.insert(0, element == holder ? element.getSimpleName() : element.getSimpleName() + "_");
+        }
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String qualifiedName = packageName.isEmpty() ? simpleName.toString() : packageName + "." + simpleName;
+        String holderType = typeName(holder);
+        if (!holder.getTypeParameters().isEmpty()) {
+            StringBuilder wildcards = new StringBuilder(holderType).append('<');
+            for (int i = 0; i < holder.getTypeParameters().size(); i++) {
+                wildcards.append(i == 0 ? "?" : ", ?");
+            }
+            holderType = wildcards.append('>').toString();
+        }
+        String registration = AnnotatedCommandRegistrar.class.getCanonicalName() + ".Registration";
+
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n");
+        out.append(" * Registers the commands of {@link ").append(typeName(holder)).append("}.\n");
+        out.append(" * <p>\n");
+        out.append(" * Generated by {@link ").append(CommandRegistrarProcessor.class.getName()).append("}, do not edit.\n");
+        out.append(" */\n");
+        out.append("public final class ").append(simpleName).append(" extends ").append(AnnotatedCommandRegistrar.class.getName()).append('<').append(holderType)
+                .append("> {\n");
+
+        out.append(INDENT).append("@Override\n");
+        out.append(INDENT).append("protected void registerCommands(").append(registration).append(" registration) {\n");
+        for (int id = 0; id < methods.size(); id++) {
+            ExecutableElement method = methods.get(id).method;
+            CommandDescription a = method.getAnnotation(CommandDescription.class);
+            Permissible permissible = method.getAnnotation(Permissible.class);
+            List<Parent> parents = getParents(method);
+            out.append(INDENT).append(INDENT).append("registration.add(").append(id).append(", ").append(literal(method.getSimpleName().toString())).append(", ")
+                    .append(method.getModifiers().contains(Modifier.STATIC)).append(", ").append(literal(a.name())).append(", ").append(literal(a.usage()))
+                    .append(", ").append(literal(a.desc())).append(", ").append(literal(a.help())).append(", ").append(a.autoParent()).append(", ")
+                    .append(permissible == null ? "null" : literal(permissible.value())).append(", ");
+            if (method.getAnnotation(Filter.class) == null) {
+                out.append("null");
+            } else {
+                out.append("new java.lang.Class<?>[] {");
+                List<TypeElement> filters = methods.get(id).filters;
+                for (int i = 0; i < filters.size(); i++) {
+                    out.append(i == 0 ? "" : ", ").append(typeName(filters.get(i))).append(".class");
+                }
+                out.append('}');
+            }
+            if (parents.isEmpty()) {
+                out.append(", null, null");
+            } else {
+                StringBuilder parentNames = new StringBuilder("new java.lang.String[] {");
+                StringBuilder childNames = new StringBuilder("new java.lang.String[] {");
+                for (int i = 0; i < parents.size(); i++) {
+                    parentNames.append(i == 0 ? "" : ", ").append(literal(parents.get(i).value()));
+                    childNames.append(i == 0 ? "" : ", ").append(literal(parents.get(i).name()));
+                }
+                out.append(", ").append(parentNames).append("}, ").append(childNames).append('}');
+            }
+            out.append(");\n");
+        }
+        out.append(INDENT).append("}\n\n");
+
+        out.append(INDENT).append("@Override\n");
+        out.append(INDENT).append("protected boolean invoke(int id, ").append(holderType).append(" instance, ").append(CommandSender.class.getName())
+                .append(" sender, ").append(CommandArguments.class.getName()).append(" args) throws java.lang.Throwable {\n");
+        out.append(INDENT).append(INDENT).append("switch (id) {\n");
+        for (int id = 0; id < methods.size(); id++) {
+            CommandMethod command = methods.get(id);
+            ExecutableElement method = command.method;
+            String sender = command.senderType == null ? "sender" : "(" + typeName(command.senderType) + ") sender";
+            StringBuilder call = new StringBuilder();
+            if (method.getModifiers().contains(Modifier.STATIC)) {
+                call.append(typeName((TypeElement) method.getEnclosingElement()));
+            } else {
+                call.append("instance");
+            }
+            call.append('.').append(method.getSimpleName()).append('(').append(command.senderFirst ? sender + ", args" : "args, " + sender).append(')');
+
+            String indent = INDENT + INDENT + INDENT + INDENT;
+            out.append(INDENT).append(INDENT).append(INDENT).append("case ").append(id).append(":\n");
+            TypeMirror ret = method.getReturnType();
+            if (ret.getKind() == TypeKind.BOOLEAN) {
+                out.append(indent).append("return ").append(call).append(";\n");
+            } else if (ret.getKind() == TypeKind.DECLARED || ret.getKind() == TypeKind.TYPEVAR || ret.getKind() == TypeKind.ARRAY) {
+                // only a Boolean false result lets child commands run
+                out.append(indent).append("return !java.lang.Boolean.FALSE.equals(").append(call).append(");\n");
+            } else {
+                out.append(indent).append(call).append(";\n");
+                out.append(indent).append("return true;\n");
+            }
+        }
+        out.append(INDENT).append(INDENT).append(INDENT).append("default:\n");
+        out.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("throw new java.lang.IllegalArgumentException(\"Unknown command id \" + id);\n");
+        out.append(INDENT).append(INDENT).append("}\n");
+        out.append(INDENT).append("}\n");
+        out.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, originating).openWriter()) {
+            writer.write(out.toString());
+        }
+    }
+
+    private List<TypeElement> getFilterTypes(ExecutableElement method) {
+        List<TypeElement> filters = new ArrayList<>();
+        TypeMirror filterAnnotation = type(Filter.class);
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (!processingEnv.getTypeUtils().isSameType(mirror.getAnnotationType(), filterAnnotation)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) {
+                    continue;
+                }
+                Object value = entry.getValue().getValue();
+                if (!(value instanceof List)) {
+                    // a single class without braces
+                    value = Collections.singletonList(entry.getValue());
+                }
+                for (Object element : (List<?>) value) {
+                    Object type = ((AnnotationValue) element).getValue();
+                    if (type instanceof TypeMirror && ((TypeMirror) type).getKind() == TypeKind.DECLARED) {
+                        filters.add((TypeElement) processingEnv.getTypeUtils().asElement((TypeMirror) type));
+                    }
+                }
+            }
+        }
+        return filters;
+    }
+
+    /**
+     * Returns the parents of the method in the order the factory adds the command to them: {@link Parent} first, then {@link Parents}.
+     */
+    private List<Parent> getParents(ExecutableElement method) {
+        List<Parent> parents = new ArrayList<>();
+        Parent parent = method.getAnnotation(Parent.class);
+        if (parent != null) {
+            parents.add(parent);
+        }
+        Parents cpas = method.getAnnotation(Parents.class);
+        if (cpas != null) {
+            for (Parent p : cpas.value()) {
+                parents.add(p);
+            }
+        }
+        return parents;
+    }
+
+    private TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) processingEnv.getTypeUtils().asElement(superclass);
+    }
+
+    private PackageElement getPackageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private TypeMirror type(Class<?> clazz) {
+        return processingEnv.getElementUtils().getTypeElement(clazz.getCanonicalName()).asType();
+    }
+
+    private TypeMirror erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    private String typeName(TypeElement type) {
+        return type.getQualifiedName().toString();
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    /**
+     * Reports an error on the method if the holder declares it, or on the holder if it's inherited, so that it isn't reported twice on the same element.
+     */
+    private void error(TypeElement holder, ExecutableElement method, String message) {
+        if (method.getEnclosingElement().equals(holder)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, method);
+        } else {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message + " (inherited from " + ((TypeElement) method.getEnclosingElement()).getQualifiedName()
+                    + ")", holder);
+        }
+    }
+
+    private static final class CommandMethod {
+        private final ExecutableElement method;
+        private final boolean senderFirst;
+        private final TypeElement senderType;
+        private final List<TypeElement> filters;
+
+        private CommandMethod(ExecutableElement method, boolean senderFirst, TypeElement senderType, List<TypeElement> filters) {
+            this.method = method;
+            this.senderFirst = senderFirst;
+            this.senderType = senderType;
+            this.filters = filters;
+        }
+    }
+}
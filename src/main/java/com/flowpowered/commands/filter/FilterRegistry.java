@@ -0,0 +1,93 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.filter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provides the filters declared by type, such as with {@link com.flowpowered.commands.annotated.Filter @Filter}, for the commands of a
+ * {@link com.flowpowered.commands.CommandManager CommandManager}.
+ * <p>
+ * Filters are stateless unless annotated with {@link StatefulFilter}, so a single instance of each type is shared by all commands. Because a shared filter gives
+ * the same result for every command, it is only validated once while processing a path of commands.
+ */
+public final class FilterRegistry {
+    private final ConcurrentMap<Class<?>, CommandFilter> shared = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the shared filter of the given type, creating it with its empty constructor if needed. {@link StatefulFilter Stateful} filters are created anew.
+     *
+     * @param type the type of the filter
+     * @return the filter
+     * @throws IllegalArgumentException if the filter can't be created
+     */
+    public <T extends CommandFilter> T get(Class<T> type) {
+        CommandFilter filter = shared.get(type);
+        if (filter == null) {
+            if (type.isAnnotationPresent(StatefulFilter.class)) {
+                return newInstance(type);
+            }
+            filter = newInstance(type);
+            CommandFilter previous = shared.putIfAbsent(type, filter);
+            if (previous != null) {
+                filter = previous;
+            }
+        }
+        return type.cast(filter);
+    }
+
+    /**
+     * Sets the shared filter of its type, for filters that can't be created with an empty constructor.
+     *
+     * @param filter the filter to share
+     * @throws IllegalArgumentException if the filter is {@link StatefulFilter stateful}
+     */
+    public void register(CommandFilter filter) {
+        if (filter.getClass().isAnnotationPresent(StatefulFilter.class)) {
+            throw new IllegalArgumentException("Stateful filter " + filter.getClass().getName() + " can not be shared");
+        }
+        shared.put(filter.getClass(), filter);
+    }
+
+    /**
+     * Checks whether the given filter is the shared one of its type.
+     *
+     * @param filter the filter
+     * @return whether it's shared
+     */
+    public boolean isShared(CommandFilter filter) {
+        return shared.get(filter.getClass()) == filter;
+    }
+
+    private static <T extends CommandFilter> T newInstance(Class<T> type) {
+        try {
+            return type.newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException("All CommandFilters must have an empty constructor.", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access the empty constructor of " + type.getName(), e);
+        }
+    }
+}
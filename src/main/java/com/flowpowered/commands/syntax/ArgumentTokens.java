@@ -0,0 +1,160 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.syntax;
+
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of arguments, stored as start and end offsets into the original command line.
+ * <p>
+ * An argument is turned into a {@link String} only when it's accessed through {@link #get(int)}, and then it's cached, so every argument is copied at most once.
+ * Lengths and {@link #getSequence(int) character views} of the arguments are available without copying anything.
+ */
+public class ArgumentTokens extends AbstractList<String> implements RandomAccess {
+    private final String input;
+    private final int[] starts, ends;
+    private final String[] values;
+    private final int offset, size;
+
+    protected ArgumentTokens(String input, int[] starts, int[] ends, String[] values, int offset, int size) {
+        this.input = input;
+        this.starts = starts;
+        this.ends = ends;
+        this.values = values;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    public String get(int index) {
+        int i = toArrayIndex(index);
+        String value = values[i];
+        if (value == null) {
+            value = input.substring(starts[i], ends[i]);
+            values[i] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a view of the subrange of the arguments. The view shares the offsets and already created strings with this list.
+     */
+    @Override
+    public ArgumentTokens subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size);
+        }
+        return new ArgumentTokens(input, starts, ends, values, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * @return the command line the arguments were split from
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * @return the offset in the {@link #getInput() input} at which the argument starts
+     */
+    public int getStart(int index) {
+        return starts[toArrayIndex(index)];
+    }
+
+    /**
+     * @return the offset in the {@link #getInput() input} just after the end of the argument
+     */
+    public int getEnd(int index) {
+        return ends[toArrayIndex(index)];
+    }
+
+    public int getLength(int index) {
+        int i = toArrayIndex(index);
+        return ends[i] - starts[i];
+    }
+
+    /**
+     * Returns the argument as a read-only view of the input, without copying it.
+     */
+    public CharSequence getSequence(int index) {
+        int i = toArrayIndex(index);
+        if (values[i] != null) {
+            return values[i];
+        }
+        return CharBuffer.wrap(input, starts[i], ends[i]);
+    }
+
+    private int toArrayIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return offset + index;
+    }
+
+    /**
+     * Collects argument offsets for a {@link TokenizingSyntax}.
+     */
+    public static class Builder {
+        private int[] starts = new int[8], ends = new int[8];
+        private int size = 0;
+
+        public void add(int start, int end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            ++size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getStart(int index) {
+            return starts[index];
+        }
+
+        public int getEnd(int index) {
+            return ends[index];
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public ArgumentTokens build(String input) {
+            return new ArgumentTokens(input, Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), new String[size], 0, size);
+        }
+    }
+}
@@ -71,8 +71,7 @@ public class RegexSyntax extends AbstractSyntax {
             List<String> split = splitIgnoreQuotes(before, sepPattern, 1);
             args.add(args.remove(args.size() - 1) + split.get(0));
             args.addAll(split.subList(1, split.size()));
-            Pattern endPattern = Pattern.compile(quoteEnd.replaceFirst("%s", StringUtil.escapeRegex(quote)));
-            Matcher endMatcher = endPattern.matcher(input);
+            Matcher endMatcher = getQuoteEndPattern(StringUtil.escapeRegex(quote)).matcher(input);
             if (endMatcher.find(start + 1)) {
                 index = endMatcher.end(1);
             } else {
@@ -98,9 +97,8 @@ public class RegexSyntax extends AbstractSyntax {
         while (startMatcher.find(index)) {
             int endOfStart = startMatcher.end(1);
             String quote = StringUtil.escapeRegex(startMatcher.group(1));
-            Pattern endPattern = Pattern.compile(quoteEnd.replaceFirst("%s", quote));
             startMatcher.appendReplacement(buf, startMatcher.group().replaceFirst(quote, ""));
-            Matcher endMatcher = endPattern.matcher(input);
+            Matcher endMatcher = getQuoteEndPattern(quote).matcher(input);
             if (endMatcher.find(endOfStart)) {
                 buf.append(input, endOfStart, endMatcher.start(1));
                 index = endMatcher.end(1);
@@ -143,6 +141,8 @@ public class RegexSyntax extends AbstractSyntax {
 
     /**
      * The command syntax of the old Spout Engine
+     *
+     * @see StateMachineSyntax#SPOUT_SYNTAX the same syntax, parsed without regular expressions
      */
     public static RegexSyntax SPOUT_SYNTAX = new RegexSyntax(SpoutFlagSyntax.INSTANCE,
             "(?:^| )(['\"])", // Quote start
@@ -0,0 +1,294 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.syntax;
+
+import java.util.List;
+
+import gnu.trove.list.TIntList;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.flowpowered.commands.syntax.flags.FlagSyntax;
+import com.flowpowered.commands.syntax.flags.SpoutFlagSyntax;
+
+/**
+ * A {@link Syntax} which splits and unescapes its input in a single linear pass over the characters, without any regular expressions.
+ * <p>
+ * The state machine is built once from the set of quote characters, the separator and the escape character:
+ * <ul>
+ *     <li>a quote opens only at the beginning of an argument (that is, at the beginning of the input or right after a separator),</li>
+ *     <li>a quote closes on the same quote character, if it's not the character right after the opening quote, isn't preceded by the escape character,
+ *     and is followed by a separator or the end of the input,</li>
+ *     <li>an unclosed quote extends till the end of the input,</li>
+ *     <li>unescaping removes the quotes, and the escape character in front of any quote character.</li>
+ * </ul>
+ * These are the rules of the {@link RegexSyntax#SPOUT_SYNTAX}, so {@link #SPOUT_SYNTAX} produces exactly the same arguments, paddings and unclosed quotes.
+ */
+public class StateMachineSyntax extends AbstractSyntax implements TokenizingSyntax {
+    private static final byte OTHER = 0;
+    private static final byte SEPARATOR = 1;
+    private static final byte QUOTE = 2;
+    private static final byte ESCAPE = 3;
+
+    private final byte[] asciiClasses = new byte[128];
+    private final String quotes;
+    private final char separator, escape;
+
+    public StateMachineSyntax(String quotes, char separator, char escape) {
+        this(null, quotes, separator, escape);
+    }
+
+    public StateMachineSyntax(FlagSyntax defaultFlagSyntax, String quotes, char separator, char escape) {
+        super(String.valueOf(separator), defaultFlagSyntax);
+        if (quotes.indexOf(separator) >= 0 || quotes.indexOf(escape) >= 0 || separator == escape) {
+            throw new IllegalArgumentException("Quotes, separator and escape character must all be different");
+        }
+        this.quotes = quotes;
+        this.separator = separator;
+        this.escape = escape;
+        for (char c = 0; c < asciiClasses.length; ++c) {
+            asciiClasses[c] = classifySlow(c);
+        }
+    }
+
+    private byte classify(char c) {
+        if (c < asciiClasses.length) {
+            return asciiClasses[c];
+        }
+        return classifySlow(c);
+    }
+
+    private byte classifySlow(char c) {
+        if (c == separator) {
+            return SEPARATOR;
+        }
+        if (c == escape) {
+            return ESCAPE;
+        }
+        if (quotes.indexOf(c) >= 0) {
+            return QUOTE;
+        }
+        return OTHER;
+    }
+
+    @Override
+    public Pair<String, Integer> split(String input, List<String> output) {
+        ArgumentTokens.Builder tokens = new ArgumentTokens.Builder();
+        Pair<String, Integer> unclosedQuote = tokenize(input, tokens, null);
+        addArguments(input, tokens, output);
+        return unclosedQuote;
+    }
+
+    @Override
+    public Pair<String, Integer> splitNoEmpties(String input, List<String> output, TIntList paddings) {
+        ArgumentTokens.Builder tokens = new ArgumentTokens.Builder();
+        Pair<String, Integer> unclosedQuote = tokenize(input, tokens, paddings);
+        addArguments(input, tokens, output);
+        return unclosedQuote;
+    }
+
+    private void addArguments(String input, ArgumentTokens.Builder tokens, List<String> output) {
+        for (int i = 0; i < tokens.size(); ++i) {
+            output.add(input.substring(tokens.getStart(i), tokens.getEnd(i)));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If {@code paddings} is null, empty arguments are kept in the output, like in {@link #split(String, List)}.
+     */
+    @Override
+    public Pair<String, Integer> tokenize(String input, ArgumentTokens.Builder output, TIntList paddings) {
+        if (paddings != null) {
+            paddings.clear();
+        }
+        final int length = input.length();
+        Pair<String, Integer> unclosedQuote = null;
+        int start = 0;
+        int padding = 0;
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            switch (classify(c)) {
+                case SEPARATOR:
+                    padding = emit(start, i, false, output, paddings, padding);
+                    start = i + 1;
+                    break;
+                case QUOTE:
+                    if (i == start) {
+                        int end = findQuoteEnd(input, c, i);
+                        if (end < 0) {
+                            unclosedQuote = new ImmutablePair<>(String.valueOf(c), i);
+                            i = length;
+                        } else {
+                            i = end;
+                        }
+                    }
+                    break;
+            }
+            ++i;
+        }
+        emit(start, length, true, output, paddings, padding);
+        return unclosedQuote;
+    }
+
+    private int emit(int start, int end, boolean last, ArgumentTokens.Builder output, TIntList paddings, int padding) {
+        if (paddings == null) {
+            output.add(start, end);
+            return 0;
+        }
+        if (start == end) {
+            if (!last) {
+                return padding + 1;
+            }
+            output.add(start, end);
+            paddings.add(padding);
+            return 0;
+        }
+        paddings.add(padding);
+        output.add(start, end);
+        if (last) {
+            paddings.add(0);
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the closing quote for a quote opened at {@code start}.
+     *
+     * @return the index of the closing quote, or -1 if the quote is not closed
+     */
+    private int findQuoteEnd(String input, char quote, int start) {
+        final int length = input.length();
+        for (int i = start + 2; i < length; ++i) {
+            if (input.charAt(i) == quote && input.charAt(i - 1) != escape && isArgumentEnd(input, i + 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isArgumentEnd(String input, int i) {
+        final int length = input.length();
+        if (i == length || input.charAt(i) == separator) {
+            return true;
+        }
+        // The regex '$' also matches right before a line terminator at the end of input, and we want to split the same way.
+        char c = input.charAt(i);
+        if (i + 1 == length) {
+            return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+        return i + 2 == length && c == '\r' && input.charAt(i + 1) == '\n';
+    }
+
+    @Override
+    public String unescape(String input) {
+        final int length = input.length();
+        if (!needsUnescaping(input)) {
+            return input;
+        }
+        StringBuilder out = new StringBuilder(length);
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            switch (classify(c)) {
+                case SEPARATOR:
+                    start = i + 1;
+                    break;
+                case QUOTE:
+                    if (i == start) {
+                        int end = findQuoteEnd(input, c, i);
+                        if (end < 0) {
+                            end = length;
+                        }
+                        appendUnescaped(input, i + 1, end, out);
+                        i = end + 1;
+                        continue;
+                    }
+                    break;
+            }
+            i = appendUnescaped(input, i, out);
+        }
+        return out.toString();
+    }
+
+    private boolean needsUnescaping(String input) {
+        for (int i = 0; i < input.length(); ++i) {
+            byte type = classify(input.charAt(i));
+            if (type == QUOTE || type == ESCAPE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendUnescaped(String input, int start, int end, StringBuilder out) {
+        int i = start;
+        while (i < end) {
+            i = appendUnescaped(input, i, out);
+        }
+    }
+
+    /**
+     * Appends the character at {@code i}, dropping it if it's an escape character followed by a quote.
+     *
+     * @return the index of the next character to process
+     */
+    private int appendUnescaped(String input, int i, StringBuilder out) {
+        char c = input.charAt(i);
+        if (c == escape && i + 1 < input.length() && classify(input.charAt(i + 1)) == QUOTE) {
+            out.append(input.charAt(i + 1));
+            return i + 2;
+        }
+        out.append(c);
+        return i + 1;
+    }
+
+    @Override
+    public String escape(String input) {
+        StringBuilder out = null;
+        for (int i = 0; i < input.length(); ++i) {
+            char c = input.charAt(i);
+            if (classify(c) == QUOTE) {
+                if (out == null) {
+                    out = new StringBuilder(input.length() + 4).append(input, 0, i);
+                }
+                out.append(escape);
+            }
+            if (out != null) {
+                out.append(c);
+            }
+        }
+        return out == null ? input : out.toString();
+    }
+
+    /**
+     * The command syntax of the old Spout Engine.
+     * Behaves exactly like {@link RegexSyntax#SPOUT_SYNTAX}.
+     */
+    public static final StateMachineSyntax SPOUT_SYNTAX = new StateMachineSyntax(SpoutFlagSyntax.INSTANCE, "'\"", ' ', '\\');
+}
@@ -0,0 +1,46 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.syntax;
+
+import java.util.List;
+
+import gnu.trove.list.TIntList;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * A {@link Syntax} which can report where the arguments are in the input, instead of copying them out of it.
+ */
+public interface TokenizingSyntax extends Syntax {
+
+    /**
+     * Splits the input the same way as {@link #splitNoEmpties(String, List, TIntList)}, but adds the offsets of the arguments to {@code output} instead of the arguments themselves.
+     *
+     * @param input the command line
+     * @param output the builder to add the argument offsets to
+     * @param paddings the list to fill with paddings, like in {@link #splitNoEmpties(String, List, TIntList)}
+     * @return the unclosed quote and its position, or {@code null} if all quotes were closed
+     */
+    Pair<String, Integer> tokenize(String input, ArgumentTokens.Builder output, TIntList paddings);
+}
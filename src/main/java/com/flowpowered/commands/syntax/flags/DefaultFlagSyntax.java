@@ -39,6 +39,7 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import com.flowpowered.math.vector.Vector2i;
 
+import com.flowpowered.commands.ArgumentKeys;
 import com.flowpowered.commands.Command;
 import com.flowpowered.commands.CommandArguments;
 import com.flowpowered.commands.flags.CommandFlags;
@@ -73,7 +74,7 @@ public class DefaultFlagSyntax implements FlagSyntax {
     public void parse(CommandFlags flags, CommandArguments args, String name) throws InvalidCommandArgumentException {
         int i = 0;
         while (args.hasMore()) {
-            String curArgName = CommandFlags.FLAG_ARGNAME + name + ":" + i;
+            String curArgName = ArgumentKeys.flag(name, i);
             Pair<String, Flag> flag = parseFlag(flags, args, name, curArgName);
             if (flag == null) {
                 return;
@@ -150,7 +151,7 @@ public class DefaultFlagSyntax implements FlagSyntax {
     public int complete(Command command, CommandSender sender, CommandFlags flags, CommandArguments args, String name, int cursor, List<String> candidates) throws InvalidCommandArgumentException {
         int i = 0;
         while (args.hasMore()) {
-            String curArgName = CommandFlags.FLAG_ARGNAME + name + ":" + i;
+            String curArgName = ArgumentKeys.flag(name, i);
             Vector2i argPos = args.offsetToArgument(cursor);
             if (argPos.getX() > 0 || args.hasOverride(curArgName)) {
                 Pair<String, Flag> flag = parseFlag(flags, args, name, curArgName);
@@ -233,7 +234,7 @@ public class DefaultFlagSyntax implements FlagSyntax {
         TIntObjectMap<String> overrides = new TIntObjectHashMap<String>();
         int argNum = 0;
         while (argNum < flag.getMaxArgs() && args.hasMore()) {
-            String curFlagArgName = curArgName + ":" + argNum;
+            String curFlagArgName = ArgumentKeys.indexed(curArgName, argNum);
             String current = args.currentArgument(curFlagArgName, completing);
             Matcher lMatcher = LONG_FLAG_REGEX.matcher(current);
             Matcher sMatcher = SHORT_FLAG_REGEX.matcher(current);
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.flowpowered.commands.ArgumentKeys;
 import com.flowpowered.commands.Command;
 import com.flowpowered.commands.CommandArguments;
 import com.flowpowered.commands.flags.CommandFlags;
@@ -48,7 +49,7 @@ public class SpoutFlagSyntax implements FlagSyntax {
     public void parse(CommandFlags flags, CommandArguments args, String name) throws InvalidCommandArgumentException {
         int i = 0;
         while (args.hasMore()) {
-            String curArgName = CommandFlags.FLAG_ARGNAME + name + ":" + i;
+            String curArgName = ArgumentKeys.flag(name, i);
             String current = args.currentArgument(curArgName);
             Matcher matcher = FLAG_REGEX.matcher(current);
             if (!matcher.matches()) {
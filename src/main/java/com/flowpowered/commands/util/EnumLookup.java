@@ -0,0 +1,198 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.util;
+
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A lookup table for the constants of an enum type, built once per type and shared through {@link #of(Class)}.
+ * <p>
+ * Constants are found by ordinal, or by name ignoring case, with a single probe of an open addressing table that folds case while hashing and comparing,
+ * so lookups don't copy the constants array or upper case the input. The message for invalid input and the names used for completion are built once as well.
+ *
+ * @param <T> the enum type
+ */
+public final class EnumLookup<T extends Enum<T>> {
+    private static final int MAX_ARG_FULLPRINT = 5;
+    private static final ClassValue<EnumLookup<?>> LOOKUPS = new ClassValue<EnumLookup<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected EnumLookup<?> computeValue(Class<?> type) {
+            return new EnumLookup(type);
+        }
+    };
+    private final Class<T> enumClass;
+    private final T[] constants;
+    private final String[] names;
+    private final T[] values;
+    private final int mask;
+    private final String errorMessage;
+    private final SortedSet<String> completionNames;
+
+    @SuppressWarnings("unchecked")
+    private EnumLookup(Class<T> enumClass) {
+        this.enumClass = enumClass;
+        this.constants = enumClass.getEnumConstants();
+        int capacity = Integer.highestOneBit(Math.max(constants.length, 1) * 2) * 2; // At most half full
+        this.names = new String[capacity];
+        this.values = (T[]) Array.newInstance(enumClass, capacity);
+        this.mask = capacity - 1;
+        // Names which are already upper case go first, so they win when two names only differ by case, like they did with Enum.valueOf
+        for (int pass = 0; pass < 2; ++pass) {
+            for (T constant : constants) {
+                String name = constant.name();
+                if (isUpperCase(name) == (pass == 0) && find(name) == null) {
+                    int slot = hash(name) & mask;
+                    while (names[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    names[slot] = name;
+                    values[slot] = constant;
+                }
+            }
+        }
+        this.errorMessage = buildErrorMessage();
+        SortedSet<String> completion = new TreeSet<>();
+        for (T constant : constants) {
+            completion.add(constant.name().toLowerCase(Locale.ENGLISH));
+        }
+        this.completionNames = Collections.unmodifiableSortedSet(completion);
+    }
+
+    /**
+     * @param enumClass the enum type
+     * @return the shared lookup table of {@code enumClass}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Enum<T>> EnumLookup<T> of(Class<T> enumClass) {
+        return (EnumLookup<T>) LOOKUPS.get(enumClass);
+    }
+
+    public Class<T> getEnumClass() {
+        return enumClass;
+    }
+
+    /**
+     * @return the number of constants
+     */
+    public int size() {
+        return constants.length;
+    }
+
+    /**
+     * @param ordinal the ordinal of the constant
+     * @return the constant, or {@code null} if there is none with that ordinal
+     */
+    public T get(long ordinal) {
+        if (ordinal < 0 || ordinal >= constants.length) {
+            return null;
+        }
+        return constants[(int) ordinal];
+    }
+
+    /**
+     * @param name the name of the constant, in any case
+     * @return the constant, or {@code null} if there is none with that name
+     */
+    public T find(CharSequence name) {
+        int slot = hash(name) & mask;
+        String candidate;
+        while ((candidate = names[slot]) != null) {
+            if (equalsIgnoreCase(candidate, name)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return the message telling which values are valid
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * @return the lower case names of the constants, for completion
+     */
+    public SortedSet<String> getCompletionNames() {
+        return completionNames;
+    }
+
+    private static int hash(CharSequence name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); ++i) {
+            h = 31 * h + Character.toUpperCase(name.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(String name, CharSequence other) {
+        int length = name.length();
+        if (other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            char a = name.charAt(i);
+            char b = other.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUpperCase(String name) {
+        for (int i = 0; i < name.length(); ++i) {
+            if (Character.toUpperCase(name.charAt(i)) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String buildErrorMessage() {
+        String itemList;
+        if (constants.length > MAX_ARG_FULLPRINT) {
+            itemList = "an element of " + enumClass.getSimpleName();
+        } else {
+            boolean first = true;
+            StringBuilder build = new StringBuilder();
+            for (T e : constants) {
+                if (!first) {
+                    build.append(", ");
+                }
+                build.append("'").append(e.name()).append("'");
+                first = false;
+            }
+            itemList = build.toString();
+        }
+        return "Invalid " + enumClass.getSimpleName() + "; Must be 0-" + constants.length + " or " + itemList + ".";
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.util;
+
+/**
+ * Validating number parsers which work directly on the characters of an argument and report invalid input without throwing.
+ * <p>
+ * They accept exactly what {@link Integer#parseInt(String)} and {@link Double#parseDouble(String)} accept, so checking the input first
+ * and then parsing it can't fail, and malformed input doesn't cost a {@link NumberFormatException}.
+ */
+public final class NumberParser {
+    /**
+     * Returned by {@link #parseInt(CharSequence, int, int)} for input which isn't an {@code int}. It is outside of the {@code int} range, so it can't be mistaken for a value.
+     */
+    public static final long NOT_AN_INT = Long.MIN_VALUE;
+    private static final long MAX_EXACT_FLOAT_MANTISSA = 1 << 24;
+    // The powers of ten which are exact floats
+    private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private NumberParser() {
+    }
+
+    public static long parseInt(CharSequence input) {
+        return parseInt(input, 0, input.length());
+    }
+
+    /**
+     * Parses a decimal {@code int}, with the same rules as {@link Integer#parseInt(String)}.
+     *
+     * @param input the characters to parse
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return the value, or {@link #NOT_AN_INT} if the input isn't an {@code int}
+     */
+    public static long parseInt(CharSequence input, int start, int end) {
+        if (start >= end) {
+            return NOT_AN_INT;
+        }
+        int i = start;
+        boolean negative = false;
+        char first = input.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                return NOT_AN_INT;
+            }
+        }
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < end; ++i) {
+            int digit = Character.digit(input.charAt(i), 10);
+            if (digit < 0) {
+                return NOT_AN_INT;
+            }
+            value = value * 10 + digit;
+            if (value > limit) {
+                return NOT_AN_INT;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    public static boolean isFloatingPoint(CharSequence input) {
+        return isFloatingPoint(input, 0, input.length());
+    }
+
+    /**
+     * Checks whether the input is a floating point number, as accepted by {@link Double#parseDouble(String)} and {@link Float#parseFloat(String)}:
+     * an optional sign followed by {@code NaN}, {@code Infinity}, a decimal or a hexadecimal floating point literal with an optional type suffix,
+     * surrounded by any number of characters up to {@code ' '}.
+     *
+     * @param input the characters to check
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return whether parsing the input won't throw
+     */
+    public static boolean isFloatingPoint(CharSequence input, int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') {
+            ++start;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        int i = start;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+            ++i;
+        }
+        if (i == end) {
+            return false;
+        }
+        char c = input.charAt(i);
+        if (c == 'N') {
+            return matches(input, i, end, "NaN");
+        }
+        if (c == 'I') {
+            return matches(input, i, end, "Infinity");
+        }
+        if (c == '0' && i + 1 < end && (input.charAt(i + 1) == 'x' || input.charAt(i + 1) == 'X')) {
+            return isHexFloatingPoint(input, i + 2, end);
+        }
+        int digits = 0;
+        while (i < end && isDigit(input.charAt(i))) {
+            ++i;
+            ++digits;
+        }
+        if (i < end && input.charAt(i) == '.') {
+            ++i;
+            while (i < end && isDigit(input.charAt(i))) {
+                ++i;
+                ++digits;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+            i = skipExponent(input, i + 1, end);
+            if (i < 0) {
+                return false;
+            }
+        }
+        return isSuffixOrEnd(input, i, end);
+    }
+
+    /**
+     * Parses a {@code float} which {@link #isFloatingPoint(CharSequence, int, int)} accepted, with the same result as {@link Float#parseFloat(String)}.
+     * Plain decimals with few enough digits are converted directly, which is exact because both the digits and the power of ten are exact floats and a single
+     * division rounds correctly. Everything else goes through {@link Float#parseFloat(String)}.
+     *
+     * @param input the characters to parse
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return the value
+     * @throws NumberFormatException if the input isn't a floating point number
+     */
+    public static float parseFloat(String input, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+            negative = input.charAt(i) == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; ++i) {
+            char c = input.charAt(i);
+            if (isDigit(c)) {
+                mantissa = mantissa * 10 + (c - '0');
+                ++digits;
+                if (fractionDigits >= 0) {
+                    ++fractionDigits;
+                }
+                if (mantissa > MAX_EXACT_FLOAT_MANTISSA) {
+                    break;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < end || digits == 0 || fractionDigits >= FLOAT_POWERS_OF_TEN.length) {
+            return Float.parseFloat(start == 0 && end == input.length() ? input : input.substring(start, end));
+        }
+        float value = fractionDigits > 0 ? mantissa / FLOAT_POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static boolean isHexFloatingPoint(CharSequence input, int i, int end) {
+        int digits = 0;
+        while (i < end && isHexDigit(input.charAt(i))) {
+            ++i;
+            ++digits;
+        }
+        if (i < end && input.charAt(i) == '.') {
+            ++i;
+            while (i < end && isHexDigit(input.charAt(i))) {
+                ++i;
+                ++digits;
+            }
+        }
+        // The binary exponent is mandatory in hexadecimal literals
+        if (digits == 0 || i == end || (input.charAt(i) != 'p' && input.charAt(i) != 'P')) {
+            return false;
+        }
+        i = skipExponent(input, i + 1, end);
+        return i >= 0 && isSuffixOrEnd(input, i, end);
+    }
+
+    /**
+     * @return the index after the exponent starting at {@code i}, or {@code -1} if there are no exponent digits
+     */
+    private static int skipExponent(CharSequence input, int i, int end) {
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+            ++i;
+        }
+        int start = i;
+        while (i < end && isDigit(input.charAt(i))) {
+            ++i;
+        }
+        return i == start ? -1 : i;
+    }
+
+    private static boolean isSuffixOrEnd(CharSequence input, int i, int end) {
+        if (i == end) {
+            return true;
+        }
+        char c = input.charAt(i);
+        return i + 1 == end && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+    }
+
+    private static boolean matches(CharSequence input, int i, int end, String expected) {
+        if (end - i != expected.length()) {
+            return false;
+        }
+        for (int j = 0; j < expected.length(); ++j) {
+            if (input.charAt(i + j) != expected.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
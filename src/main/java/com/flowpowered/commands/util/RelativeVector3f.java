@@ -78,6 +78,18 @@ public class RelativeVector3f extends Vector3f {
         this.raw = v;
     }
 
+    /**
+     * Creates the vector from its raw coordinates directly, resolving them against {@code refPoint} without any intermediate vectors.
+     */
+    public RelativeVector3f(float x, float y, float z, Vector3f refPoint, boolean relativeX, boolean relativeY, boolean relativeZ) {
+        super(x + (relativeX ? refPoint.getX() : 0), y + (relativeY ? refPoint.getY() : 0), z + (relativeZ ? refPoint.getZ() : 0));
+        this.relativeX = relativeX;
+        this.relativeY = relativeY;
+        this.relativeZ = relativeZ;
+        this.refPoint = refPoint;
+        this.raw = new Vector3f(x, y, z);
+    }
+
     public RelativeVector3f withRefPoint(Vector3f refPoint) {
         if (refPoint == null) {
             refPoint = Vector3f.ZERO;
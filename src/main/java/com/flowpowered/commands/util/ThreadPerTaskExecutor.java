@@ -0,0 +1,128 @@
+/*
+ * This file is part of Flow Commands, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2013 Flow Powered <https://flowpowered.com/>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flowpowered.commands.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link Executor} which runs tasks on threads created by a {@link ThreadFactory}, with at most a fixed number of tasks running at once.
+ * Tasks over the limit are queued instead of blocking the caller, and a thread is only kept while there are queued tasks for it to run.
+ * <p>
+ * This is meant for commands which block, e.g. on a database or on disk. On JVMs with virtual threads, passing a virtual thread factory lets thousands of such commands
+ * wait at once without an OS thread each, while the limit protects the resources they wait on.
+ */
+public class ThreadPerTaskExecutor implements Executor {
+    private final ThreadFactory threadFactory;
+    private final int maxConcurrent;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * @param threadFactory the factory to create the threads with
+     * @param maxConcurrent the maximum number of tasks running at once
+     */
+    public ThreadPerTaskExecutor(ThreadFactory threadFactory, int maxConcurrent) {
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Invalid thread factory! Must not be null!");
+        }
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Invalid concurrency limit! Must be positive!");
+        }
+        this.threadFactory = threadFactory;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        queue.add(command);
+        // If a worker polled the task already it will run, so it can only be rejected while still queued
+        if (!startWorker() && queue.remove(command)) {
+            throw new IllegalStateException("The thread factory refused to create a thread.");
+        }
+    }
+
+    /**
+     * @return the number of tasks being run
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return the number of tasks waiting for the limit
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return false if a worker was needed but the thread factory refused to create its thread
+     */
+    private boolean startWorker() {
+        int current;
+        do {
+            current = running.get();
+            if (current >= maxConcurrent) {
+                return true; // A running worker will pick the task up when it's done
+            }
+        } while (!running.compareAndSet(current, current + 1));
+        Thread thread = threadFactory.newThread(new Worker());
+        if (thread == null) {
+            running.decrementAndGet();
+            return false;
+        }
+        thread.start();
+        return true;
+    }
+
+    private class Worker implements Runnable {
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                while ((task = queue.poll()) != null) {
+                    task.run();
+                }
+            } finally {
+                running.decrementAndGet();
+                // A task may have been queued after our last poll but before we stopped counting as running
+                // If no thread can be created for it, it's left for the next call to execute
+                if (!queue.isEmpty()) {
+                    startWorker();
+                }
+            }
+        }
+    }
+}